@@ -247,6 +247,9 @@ public class GraphActivity
         super.onDestroy();
         if (asyncTask != null && asyncTask.getStatus() != AsyncTask.Status.FINISHED)
             asyncTask.cancel(true);
+        // controller is retained while activity is recreated, it is released only when activity is closed
+        if (isFinishing())
+            controller.release();
     }
 
     @Override
@@ -414,15 +417,18 @@ public class GraphActivity
                 if (controller.nodeSelected()) {
                     if (controller.checkForNode(x, y)) {
                         permanentSnackbar.setText(getResources().getString(R.string.dijkstra_applying));
+                        final GraphController.AlgorithmOperation dijkstra = controller.prepareDijkstra(x, y);
                         asyncTask = new AsyncTask<Void, Void, Integer>() {
                             @Override
                             public Integer doInBackground(Void... params) {
-
-                                return controller.performDijkstra(x, y);
+                                if (dijkstra != null)
+                                    dijkstra.compute();
+                                return null;
                             }
 
                             @Override
-                            public void onPostExecute(Integer result) {
+                            public void onPostExecute(Integer nothing) {
+                                int result = (dijkstra == null) ? -1 : controller.perform(dijkstra);
                                 String resultStr;
                                 if (result == -1)
                                     resultStr = getResources().getString(R.string.dijkstra_failure);
@@ -690,15 +696,20 @@ public class GraphActivity
 
     private class DFS
         extends AsyncTask<Void, Void, Integer> {
+        // graph snapshot is taken on UI thread, so graph can be edited while search is running
+        private final GraphController.AlgorithmOperation dfs = controller.prepareDFS();
 
         @Override
         public Integer doInBackground(Void... params) {
-            controller.performDFS();
+            if (dfs != null)
+                dfs.compute();
             return null;
         }
 
         @Override
         protected void onPostExecute(Integer integer) {
+            if (dfs != null)
+                controller.perform(dfs);
             canvas.invalidate();
         }
     }
@@ -723,15 +734,19 @@ public class GraphActivity
     public void performPrim(View view) {
         blink(view);
         drawerLayout.closeDrawers();
+        final GraphController.AlgorithmOperation prim = controller.preparePrim();
         asyncTask = new AsyncTask<Void, Void, Integer>() {
 
             @Override
             public Integer doInBackground(Void... params) {
-                return controller.performPrim();
+                if (prim != null)
+                    prim.compute();
+                return null;
             }
 
             @Override
-            protected void onPostExecute(Integer result) {
+            protected void onPostExecute(Integer nothing) {
+                int result = (prim == null) ? -1 : controller.perform(prim);
                 canvas.invalidate();
                 if (result == -1)
                     permanentSnackbar.setText(getResources().getString(R.string.prim_failure));
@@ -746,15 +761,19 @@ public class GraphActivity
     public void performKruskal(View view) {
         blink(view);
         drawerLayout.closeDrawers();
+        final GraphController.AlgorithmOperation kruskal = controller.prepareKruskal();
         asyncTask = new AsyncTask<Void, Void, Integer>() {
 
             @Override
             public Integer doInBackground(Void... params) {
-                return controller.performKruskal();
+                if (kruskal != null)
+                    kruskal.compute();
+                return null;
             }
 
             @Override
-            protected void onPostExecute(Integer result) {
+            protected void onPostExecute(Integer nothing) {
+                int result = (kruskal == null) ? -1 : controller.perform(kruskal);
                 canvas.invalidate();
                 if (result == -1)
                     permanentSnackbar.setText(getResources().getString(R.string.kruskal_failure));
@@ -806,7 +825,10 @@ public class GraphActivity
             FileInputStream fis = openFileInput("graph");
             ObjectInputStream is = new ObjectInputStream(fis);
             graphView = (GraphView) is.readObject();
+            controller.release();
             controller = graphView.getController();
+            graphFragment.setController(controller);
+            graphFragment.setGraphView(graphView);
             canvas.setGraphView(graphView);
             canvas.invalidate();
         } catch (Exception e) {
@@ -5,12 +5,25 @@ import android.util.Pair;
 import java.io.Serializable;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Deque;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import takahawk.graphsintouch.core.Algorithms;
+import takahawk.graphsintouch.core.BreadthFirstTree;
+import takahawk.graphsintouch.core.ContractionHierarchy;
+import takahawk.graphsintouch.core.EuclideanHeuristic;
 import takahawk.graphsintouch.core.Graph;
+import takahawk.graphsintouch.core.GraphStatistics;
+import takahawk.graphsintouch.core.Heuristic;
+import takahawk.graphsintouch.core.HierarchyRebuilder;
+import takahawk.graphsintouch.core.LandmarkIndex;
+import takahawk.graphsintouch.core.ShortestPathCache;
+import takahawk.graphsintouch.core.ShortestPathTree;
 import takahawk.graphsintouch.view.Edge;
 import takahawk.graphsintouch.view.Focusable;
 import takahawk.graphsintouch.view.GraphView;
@@ -29,6 +42,55 @@ public class GraphController
     private transient Focusable selected;
     private transient Deque<Operation> undoDeque = new ArrayDeque<Operation>();
     private transient Deque<Operation> redoDeque = new ArrayDeque<Operation>();
+    // shortest path trees of Dijkstra mode, it is common to query many destinations from one source
+    private transient ShortestPathCache pathCache = new ShortestPathCache(PATH_CACHE_BUDGET);
+
+    private static final long PATH_CACHE_BUDGET = 4 * 1024 * 1024;
+    private static final int LANDMARK_COUNT = 8;
+
+    /**
+     * Algorithm used to find path in Dijkstra mode
+     */
+    public enum PathSearch {
+        /** Dijkstra's algorithm, trees of recent sources are cached */
+        DIJKSTRA,
+        /** Bidirectional Dijkstra's algorithm */
+        BIDIRECTIONAL,
+        /** A* search with straight-line distance between nodes as heuristic */
+        A_STAR,
+        /** Contraction hierarchy, it is rebuilt in background after every edit of graph while this mode is set */
+        CONTRACTION_HIERARCHY,
+        /** A* search with distances to landmark nodes as heuristic, it doesn't depend on layout */
+        LANDMARKS
+    }
+
+    // shared by all controllers, threads are created on the first build of landmark index
+    private static ExecutorService landmarkExecutor;
+
+    private static synchronized ExecutorService landmarkExecutor() {
+        if (landmarkExecutor == null) {
+            int threads = Math.min(LANDMARK_COUNT, Runtime.getRuntime().availableProcessors());
+            landmarkExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "landmarks");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return landmarkExecutor;
+    }
+
+    private PathSearch pathSearch = PathSearch.DIJKSTRA;
+    // A* heuristic is built in O(V + E), so it is kept until graph is changed or nodes are moved
+    private transient EuclideanHeuristic heuristic;
+    private transient int heuristicLayout;
+    // incremented on every node movement
+    private transient int layout;
+    private transient HierarchyRebuilder hierarchies = new HierarchyRebuilder();
+    // landmark index is built in O(k (V + E) log V), so it is kept until graph is changed
+    private transient LandmarkIndex landmarks;
 
     public GraphController(GraphView.Control control) {
         this.control = control;
@@ -41,6 +103,22 @@ public class GraphController
             undoDeque = new ArrayDeque<>();
         if (redoDeque == null)
             redoDeque = new ArrayDeque<>();
+        if (pathCache == null)
+            pathCache = new ShortestPathCache(PATH_CACHE_BUDGET);
+        if (pathSearch == null)
+            pathSearch = PathSearch.DIJKSTRA;
+        if (hierarchies == null)
+            hierarchies = new HierarchyRebuilder();
+        if (pathSearch == PathSearch.CONTRACTION_HIERARCHY)
+            hierarchies.attach(graph);
+    }
+
+    /**
+     * Stops background work of controller: rebuilder of contraction hierarchy and its thread.
+     * Must be called when controller is not used anymore
+     */
+    public void release() {
+        hierarchies.shutdown();
     }
 
     private Node nodeByNumber(int number) {
@@ -58,7 +136,12 @@ public class GraphController
         if (undoDeque.isEmpty())
             return false;
         Operation operation = undoDeque.pop();
-        operation.undo();
+        graph.beginBatch();
+        try {
+            operation.undo();
+        } finally {
+            graph.endBatch();
+        }
         redoDeque.push(operation);
         return true;
     }
@@ -71,10 +154,47 @@ public class GraphController
         if (redoDeque.isEmpty())
             return false;
         Operation operation = redoDeque.pop();
-        operation.apply();
+        graph.beginBatch();
+        try {
+            operation.apply();
+        } finally {
+            graph.endBatch();
+        }
         undoDeque.push(operation);
         return true;
     }
+
+    /**
+     * Applies operation and stores it in operation history.
+     * All graph modifications of operation are published to graph listeners as one batch
+     * @param operation operation to be applied
+     */
+    private void execute(Operation operation) {
+        graph.beginBatch();
+        try {
+            operation.apply();
+        } finally {
+            graph.endBatch();
+        }
+        undoDeque.push(operation);
+    }
+    public PathSearch pathSearch() {
+        return pathSearch;
+    }
+
+    /**
+     * Sets algorithm used by performDijkstra
+     * @param pathSearch path search algorithm
+     */
+    public void setPathSearch(PathSearch pathSearch) {
+        this.pathSearch = pathSearch;
+        // hierarchy is kept up to date only while it is used, its rebuilds are expensive
+        if (pathSearch == PathSearch.CONTRACTION_HIERARCHY)
+            hierarchies.attach(graph);
+        else
+            hierarchies.detach();
+    }
+
     /**
      * Select the node and give it focus
      * @param node node to be selected
@@ -218,8 +338,7 @@ public class GraphController
     public boolean addNode(int number, float x, float y) {
         if (!graph.hasVertex(number)) {
             AddNode op = new AddNode(x, y, number);
-            op.apply();
-            undoDeque.push(op);
+            execute(op);
             return true;
         }
         return false;
@@ -237,11 +356,11 @@ public class GraphController
         if (undoDeque.peek() instanceof MoveNode && ((MoveNode) undoDeque.peek()).node == selectedNode) {
             ((MoveNode) undoDeque.peek()).add(dX, dY);
             selectedNode.move(dX, dY);
+            layout++;
         }
         else {
             Operation op = new MoveNode(dX, dY);
-            op.apply();
-            undoDeque.push(op);
+            execute(op);
         }
     }
 
@@ -254,8 +373,7 @@ public class GraphController
     public int addNode(float x, float y) {
         int number = graph.maxNumber() + 1;
         Operation op = new AddNode(x, y, number);
-        op.apply();
-        undoDeque.push(op);
+        execute(op);
         return number;
     }
 
@@ -266,13 +384,11 @@ public class GraphController
         if (selected != null) {
             if (selected instanceof Node) {
                 Operation op = new RemoveNode((Node) selected);
-                op.apply();
-                undoDeque.push(op);
+                execute(op);
                 selected = null;
             } else {
                 Operation op = new RemoveEdge((Edge) selected);
-                op.apply();;
-                undoDeque.push(op);
+                execute(op);
                 selected = null;
             }
         }
@@ -287,15 +403,13 @@ public class GraphController
         Node node = getNode(x, y);
         if (node != null) {
             Operation op = new RemoveNode(node);
-            op.apply();
-            undoDeque.push(op);
+            execute(op);
             return;
         }
         Edge edge = getEdge(x, y);
         if (edge != null) {
             Operation op = new RemoveEdge(edge);
-            op.apply();
-            undoDeque.push(op);
+            execute(op);
         }
     }
 
@@ -337,8 +451,7 @@ public class GraphController
             Node selectedNode = (Node) selected;
             if (graph.addEdge(selectedNode.number(), in.number(), weight)) {
                 Operation op = new AddEdge(selectedNode, in, weight);
-                op.apply();
-                undoDeque.push(op);
+                execute(op);
                 return new Pair<Integer, Integer>(selectedNode.number(), in.number());
             }
         }
@@ -349,69 +462,97 @@ public class GraphController
         control.killQuasiEdge();
     }
 
-    public int performDijkstra(float x, float y) {
+    /**
+     * Applies algorithm computed before (computes it if it wasn't) and stores it in operation history.
+     * Must be called from the same thread that edits graph
+     * @param algorithm algorithm operation
+     * @return algorithm result value (e.g. path length)
+     */
+    public int perform(AlgorithmOperation algorithm) {
+        algorithm.compute();
+        algorithm.apply();
+        undoDeque.push(algorithm);
+        return algorithm.value();
+    }
+
+    /**
+     * Prepares Dijkstra algorithm for a path from selected node to node on specified coordinates
+     * @param x horizontal coordinate of destination node
+     * @param y vertical coordinate of destination node
+     * @return algorithm operation or null if there are no selected node or no node on coordinates
+     */
+    public AlgorithmOperation prepareDijkstra(float x, float y) {
         Node second = getNode(x, y);
-        if (!(selected instanceof Node))
+        if (!(selected instanceof Node) || second == null)
+            return null;
+        return new PerformDijkstra((Node) selected, second);
+    }
+
+    public int performDijkstra(float x, float y) {
+        AlgorithmOperation op = prepareDijkstra(x, y);
+        if (op == null)
             return -1;
-        Node selectedNode = (Node) selected;
-        if (selected == second)
-            return 0;
-        if (second != null) {
-            PerformDijkstra op = new PerformDijkstra(selectedNode, second);
-            op.apply();
-            undoDeque.push(op);
-            if (op.result == null)
-                return -1;
-            int sum = 0;
-            for (Edge edge : op.result)
-                sum += edge.label();
-            return sum;
-        }
-        return -1;
+        return perform(op);
     }
 
-    public void performDFS() {
+    /**
+     * Prepares depth-first search from selected node
+     * @return algorithm operation or null if there are no selected node
+     */
+    public AlgorithmOperation prepareDFS() {
         if (selected == null || !(selected instanceof Node))
-            return;
-        Operation op = new PerformDFS((Node) selected);
-        op.apply();
-        undoDeque.push(op);
+            return null;
+        return new PerformDFS((Node) selected);
     }
 
-    public int performPrim() {
+    public void performDFS() {
+        AlgorithmOperation op = prepareDFS();
+        if (op != null)
+            perform(op);
+    }
+
+    /**
+     * Prepares Prim's algorithm
+     * @return algorithm operation or null if graph is directed
+     */
+    public AlgorithmOperation preparePrim() {
         if (graph.isDirected())
+            return null;
+        return new PerformPrim();
+    }
+
+    public int performPrim() {
+        AlgorithmOperation op = preparePrim();
+        if (op == null)
             return -1;
-        Operation op = new PerformPrim();
-        op.apply();
-        undoDeque.push(op);
-        int sum = 0;
-        for (Edge edge : ((PerformPrim) op).result)
-            sum += edge.label();
-        return sum;
+        return perform(op);
     }
 
-    public int performKruskal() {
+    /**
+     * Prepares Kruskal's algorithm
+     * @return algorithm operation or null if graph is directed
+     */
+    public AlgorithmOperation prepareKruskal() {
         if (graph.isDirected())
+            return null;
+        return new PerformKruskal();
+    }
+
+    public int performKruskal() {
+        AlgorithmOperation op = prepareKruskal();
+        if (op == null)
             return -1;
-        Operation op = new PerformKruskal();
-        op.apply();
-        undoDeque.push(op);
-        int sum = 0;
-        for (Edge edge : ((PerformKruskal) op).result)
-            sum += edge.label();
-        return sum;
+        return perform(op);
     }
 
     public void switchDirectedUndirected() {
         Operation op = new SwitchDirectedUndirected();
-        op.apply();
-        undoDeque.push(op);
+        execute(op);
     }
 
     public void clearAlgorithms() {
         Operation op = new ClearAlgorithms();
-        op.apply();
-        undoDeque.push(op);
+        execute(op);
     }
 
     public boolean elementSelected() {
@@ -424,14 +565,12 @@ public class GraphController
                 int number = Integer.parseInt(value);
                 if (getNodeByNumber(number) == null) {
                     Operation op = new ChangeNodeNumber((Node) selected, number);
-                    op.apply();
-                    undoDeque.push(op);
+                    execute(op);
                 }
             } else {
                 int weight = Integer.parseInt(value);
                 Operation op = new ChangeEdgeWeight((Edge) selected, weight);
-                op.apply();
-                undoDeque.push(op);
+                execute(op);
             }
         }
     }
@@ -443,6 +582,38 @@ public class GraphController
         void undo();
     }
 
+    /**
+     * Operation that performs algorithm on graph. Algorithm works on read-only snapshot of graph taken
+     * when operation is created, so compute() can be called from background thread while graph is edited.
+     * apply() shows computed result and must be called from the thread that edits graph.
+     * Nodes can be removed or renumbered while compute() runs, so apply() skips results it can't find nodes for
+     */
+    public abstract class AlgorithmOperation
+        implements Operation {
+        // released after compute(), operation stays in undo history and would keep arrays of snapshot alive
+        Graph snapshot = graph.snapshot();
+        private volatile boolean computed;
+
+        /**
+         * Performs algorithm on graph snapshot, if it is not performed yet
+         */
+        public final void compute() {
+            if (!computed) {
+                run();
+                snapshot = null;
+                computed = true;
+            }
+        }
+
+        abstract void run();
+
+        /**
+         * Returns result value of applied algorithm
+         * @return result value (e.g. path length) or -1 if algorithm failed
+         */
+        public abstract int value();
+    }
+
     class AddNode
         implements Operation {
         Node node;
@@ -583,11 +754,13 @@ public class GraphController
         @Override
         public void apply() {
             node.move(dX, dY);
+            layout++;
         }
 
         @Override
         public void undo() {
             node.move(-dX, -dY);
+            layout++;
         }
     }
 
@@ -601,7 +774,7 @@ public class GraphController
 
         @Override
         public void apply() {
-            graph.addEdge(edge.out.number(), edge.in.number());
+            graph.addEdge(edge.out.number(), edge.in.number(), edge.label());
             control.addEdge(edge);
         }
 
@@ -628,7 +801,7 @@ public class GraphController
 
         @Override
         public void undo() {
-            graph.addEdge(edge.out.number(), edge.in.number());
+            graph.addEdge(edge.out.number(), edge.in.number(), edge.label());
             control.addEdge(edge);
         }
     }
@@ -684,18 +857,129 @@ public class GraphController
     }
 
     class PerformDijkstra
-        implements Operation {
-        Node out, in;
+        extends AlgorithmOperation {
+        final int outNumber, inNumber;
+        final PathSearch search = pathSearch;
+        // node coordinates for A* heuristic, taken along with graph snapshot
+        final int nodesLayout = layout;
+        int[] numbers;
+        float[] xs, ys;
+        List<Integer> res;
         List<Edge> result;
 
         public PerformDijkstra(Node out, Node in) {
-            this.out = out;
-            this.in = in;
+            outNumber = out.number();
+            inNumber = in.number();
+            if (search == PathSearch.A_STAR) {
+                int count = 0;
+                numbers = new int[graph.vertexCount()];
+                xs = new float[numbers.length];
+                ys = new float[numbers.length];
+                for (Node node : control.nodes()) {
+                    if (count == numbers.length) {
+                        numbers = Arrays.copyOf(numbers, count * 2 + 1);
+                        xs = Arrays.copyOf(xs, numbers.length);
+                        ys = Arrays.copyOf(ys, numbers.length);
+                    }
+                    numbers[count] = node.number();
+                    xs[count] = node.x();
+                    ys[count] = node.y();
+                    count++;
+                }
+                numbers = Arrays.copyOf(numbers, count);
+                xs = Arrays.copyOf(xs, count);
+                ys = Arrays.copyOf(ys, count);
+            }
+        }
+
+        private Heuristic heuristic() {
+            synchronized (GraphController.this) {
+                if (heuristic == null || heuristic.version() != snapshot.version() || heuristicLayout != nodesLayout) {
+                    heuristic = new EuclideanHeuristic(snapshot, numbers, xs, ys);
+                    heuristicLayout = nodesLayout;
+                }
+                return heuristic;
+            }
+        }
+
+        private LandmarkIndex landmarks() {
+            synchronized (GraphController.this) {
+                if (landmarks != null && landmarks.version() == snapshot.version())
+                    return landmarks;
+            }
+            // index is built outside of lock, so other operations of controller are not blocked meanwhile
+            LandmarkIndex index = new LandmarkIndex(snapshot, LANDMARK_COUNT, landmarkExecutor());
+            synchronized (GraphController.this) {
+                // another operation could publish index of a newer graph while this one was built
+                if (landmarks == null || landmarks.version() < index.version())
+                    landmarks = index;
+            }
+            return index;
+        }
+
+        @Override
+        void run() {
+            if (outNumber == inNumber) {
+                res = java.util.Collections.singletonList(outNumber);
+                return;
+            }
+            switch (search) {
+                case BIDIRECTIONAL:
+                    // stopping rule of bidirectional search holds only for non-negative weights
+                    if (snapshot.statistics().hasNegativeWeights())
+                        res = dijkstra();
+                    else
+                        res = Algorithms.shortestPathBidirectional(snapshot, outNumber, inNumber);
+                    break;
+                case A_STAR:
+                    res = Algorithms.shortestPathAStar(snapshot, outNumber, inNumber, heuristic());
+                    break;
+                case CONTRACTION_HIERARCHY:
+                    // old hierarchy doesn't match the shown graph, so path is found by Dijkstra until the new one
+                    // is built (it is never built if there are negative weights). Rebuild is started on every
+                    // edit of graph, update() only covers the case it is not started yet
+                    ContractionHierarchy hierarchy = hierarchies.update(snapshot);
+                    if (hierarchy != null && hierarchy.version() == snapshot.version())
+                        res = hierarchy.shortestPath(outNumber, inNumber);
+                    else
+                        res = dijkstra();
+                    break;
+                case LANDMARKS:
+                    if (snapshot.statistics().hasNegativeWeights())
+                        res = dijkstra();
+                    else
+                        res = landmarks().shortestPath(outNumber, inNumber);
+                    break;
+                default:
+                    res = dijkstra();
+            }
+        }
+
+        private List<Integer> dijkstra() {
+            // when all edges have the same weight (new edges get weight 1),
+            // path with the least count of edges is the shortest one
+            GraphStatistics statistics = snapshot.statistics();
+            if (statistics.minWeight() == statistics.maxWeight() && statistics.minWeight() >= 0) {
+                BreadthFirstTree tree = Algorithms.breadthFirstTree(snapshot, outNumber);
+                return (tree == null) ? null : tree.pathTo(inNumber);
+            }
+            // tree is bound to snapshot version, so any edit of graph invalidates it
+            ShortestPathTree tree = pathCache.tree(snapshot, outNumber);
+            return (tree == null) ? null : tree.pathTo(inNumber);
+        }
+
+        @Override
+        public int value() {
+            if (result == null)
+                return -1;
+            int sum = 0;
+            for (Edge edge : result)
+                sum += edge.label();
+            return sum;
         }
 
         @Override
         public void apply() {
-            List<Integer> res = Algorithms.shortestPathDijkstra(graph, out.number(), in.number());
             if (res == null)
                 return;
             if (result == null) {
@@ -720,22 +1004,36 @@ public class GraphController
     }
 
     class PerformDFS
-            implements Operation {
-        Node out;
+            extends AlgorithmOperation {
+        final int outNumber;
+        List<Algorithms.VertexPair> res;
         List<Edge> result;
 
         public PerformDFS(Node out) {
-            this.out = out;
+            outNumber = out.number();
+        }
+
+        @Override
+        void run() {
+            res = Algorithms.depthFirstSearch(snapshot, outNumber);
+        }
+
+        @Override
+        public int value() {
+            return 0;
         }
 
         @Override
         public void apply() {
             if (result == null) {
                 result = new ArrayList<Edge>();
-                List<Algorithms.VertexPair> res = Algorithms.depthFirstSearch(graph, out.number());
                 for (Algorithms.VertexPair pair : res) {
-                    result.add(new Edge(getNodeByNumber(pair.parent()),
-                                        getNodeByNumber(pair.child()), 0));
+                    Node parent = getNodeByNumber(pair.parent());
+                    Node child = getNodeByNumber(pair.child());
+                    // node is removed or renumbered after snapshot was taken
+                    if (parent == null || child == null)
+                        continue;
+                    result.add(new Edge(parent, child, 0));
                 }
             }
             control.setMarkers(result);
@@ -748,18 +1046,31 @@ public class GraphController
     }
 
     class PerformPrim
-        implements Operation {
+        extends AlgorithmOperation {
 
+        Map<Integer, Integer> res;
         List<Edge> result;
 
         public PerformPrim() {
         }
 
+        @Override
+        void run() {
+            res = Algorithms.maxTreePrim(snapshot);
+        }
+
+        @Override
+        public int value() {
+            int sum = 0;
+            for (Edge edge : result)
+                sum += edge.label();
+            return sum;
+        }
+
         @Override
         public void apply() {
             if (result == null) {
                 result = new ArrayList<Edge>();
-                Map<Integer, Integer> res = Algorithms.maxTreePrim(graph);
                 for (Map.Entry<Integer, Integer> entry : res.entrySet()) {
                     for (Edge edge : control.edges()) {
                         if (entry.getKey() == edge.out.number() && entry.getValue() == edge.in.number())
@@ -779,18 +1090,31 @@ public class GraphController
     }
 
     class PerformKruskal
-        implements Operation {
+        extends AlgorithmOperation {
 
+        Map<Integer, Integer> res;
         List<Edge> result;
 
         public PerformKruskal() {
         }
 
+        @Override
+        void run() {
+            res = Algorithms.minTreeKruskal(snapshot);
+        }
+
+        @Override
+        public int value() {
+            int sum = 0;
+            for (Edge edge : result)
+                sum += edge.label();
+            return sum;
+        }
+
         @Override
         public void apply() {
             if (result == null) {
                 result = new ArrayList<Edge>();
-                Map<Integer, Integer> res = Algorithms.minTreeKruskal(graph);
                 for (Map.Entry<Integer, Integer> entry : res.entrySet()) {
                     for (Edge edge : control.edges()) {
                         if (entry.getKey() == edge.in.number() && entry.getValue() == edge.out.number())
@@ -1,26 +1,26 @@
 package takahawk.graphsintouch.core;
 
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.Deque;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
 
-import takahawk.takalibrary.DisjointSetForest;
+import takahawk.takalibrary.IndexedMinHeap;
+import takahawk.takalibrary.IntList;
+import takahawk.takalibrary.RadixSort;
+import takahawk.takalibrary.UnionFind;
 
 /**
  * Static class with algorithm methods
  * @authors takahawk
  */
 public class Algorithms {
+    // graphs with at least this count of edges per vertex get minimum spanning tree by Filter-Kruskal algorithm
+    private static final int FILTER_KRUSKAL_DENSITY = 8;
 
     public static class VertexPair {
 
@@ -49,24 +49,26 @@ public class Algorithms {
      * @return list with vertex pairs branches of dfs-tree (child, parent)
      */
     public static List<VertexPair> depthFirstSearch(Graph graph, int initVertex) {
+        return depthFirstSearch(graph.freeze(), initVertex);
+    }
+
+    /**
+     * Performs depth first search on a graph snapshot
+     * @see #depthFirstSearch(Graph, int)
+     */
+    public static List<VertexPair> depthFirstSearch(FrozenGraph graph, int initVertex) {
         List<VertexPair> result = new ArrayList<>();
-        Deque<VertexPair> stack = new ArrayDeque<>();
-        Set<Integer> discovered = new HashSet<>();
-        stack.push(new VertexPair(initVertex, initVertex));
-        while (!stack.isEmpty()) {
-           VertexPair pair = stack.pop();
-            if (!discovered.contains(pair._child)) {
-                discovered.add(pair._child);
-                result.add(pair);
-
-                int vertex = pair._child;
-                for (Graph.Edge edge : graph.edges(vertex)) {
-                    int adjacentVertex = (vertex != edge.getIn()) ? edge.getIn() : edge.getOut();
-                    if (!discovered.contains(adjacentVertex)) {
-                        stack.push(new VertexPair(vertex, adjacentVertex));
-                    }
-                }
-            }
+        int init = graph.indexOf(initVertex);
+        if (init == -1)
+            return result;
+        DepthFirstSearch search = new DepthFirstSearch(graph);
+        search.search(init);
+        int[] order = search.discoveryOrder();
+        int[] parents = search.parents();
+        for (int i = 0; i < search.discoveredCount(); i++) {
+            int vertex = order[i];
+            int parent = (parents[vertex] == -1) ? vertex : parents[vertex];
+            result.add(new VertexPair(graph.numbers[parent], graph.numbers[vertex]));
         }
         return result;
     }
@@ -76,36 +78,158 @@ public class Algorithms {
      * @return map represents branches of minimum-spanning-tree (key - child, value - parent)
      */
     public static Map<Integer, Integer> minTreeKruskal(Graph graph) {
+        return minTreeKruskal(graph.freeze());
+    }
+
+    /**
+     * Returns minimum spanning tree of a graph snapshot
+     * @see #minTreeKruskal(Graph)
+     */
+    public static Map<Integer, Integer> minTreeKruskal(FrozenGraph graph) {
+        if (graph.edgeCount() >= FILTER_KRUSKAL_DENSITY * graph.vertexCount())
+            return treeMap(graph, minForestFilterKruskal(graph));
+        return treeMap(graph, minForestKruskal(graph, null, 1));
+    }
+
+    /**
+     * Returns minimum spanning forest found by Kruskal's algorithm over primitive arrays:
+     * edges are ordered by radix sort of weights and joined by array-based union-find.
+     * Working only for undirected graph
+     * @param executor executor for parallel sort of edges or null to sort on the calling thread
+     * @param parallelism count of sort tasks (usually count of threads)
+     * @return parents in forest indexed by dense vertex index of graph.freeze() (-1 - root of tree)
+     */
+    public static int[] minForestKruskal(Graph graph, ExecutorService executor, int parallelism) {
+        return minForestKruskal(graph.freeze(), executor, parallelism);
+    }
+
+    /**
+     * Returns minimum spanning forest of a graph snapshot
+     * @see #minForestKruskal(Graph, ExecutorService, int)
+     */
+    public static int[] minForestKruskal(FrozenGraph graph, ExecutorService executor, int parallelism) {
         if (graph.isDirected())
             throw new UnsupportedOperationException("Kruscal's algorithm works only for undirected graphs");
-        Map<Integer, Integer> tree = new HashMap<>();
-        // get all edges via iterator
-        List<Graph.Edge> edges = new ArrayList<>();
-        for (Graph.Edge edge : graph.edges())
-            edges.add(edge);
-        // sort edges by weight
-        Collections.sort(edges, new Comparator<Graph.Edge>() {
-                    @Override
-                    public int compare(Graph.Edge o1, Graph.Edge o2) {
-                        return o1.getWeight() - o2.getWeight();
+        int n = graph.vertexCount();
+        int[] order = RadixSort.order(graph.edgeWeight, executor, parallelism);
+        // adding edges to forest in order of weight, while edge doesn't create a cycle
+        UnionFind sets = new UnionFind(n);
+        int[] forest = new int[Math.max(n - 1, 0)];
+        int size = 0;
+        for (int i = 0; i < order.length && sets.count() > 1; i++) {
+            int e = order[i];
+            if (sets.union(graph.edgeOut[e], graph.edgeIn[e]))
+                forest[size++] = e;
+        }
+        return forestParents(graph, forest, size);
+    }
+
+    /**
+     * Returns minimum spanning forest found by Filter-Kruskal algorithm: edges are partitioned by weight as in
+     * quicksort and heavy edges inside components are dropped before they are sorted, so on dense graphs
+     * expected time is close to linear. Forest is the same as the one of
+     * {@link #minForestKruskal(Graph, ExecutorService, int)}. Working only for undirected graph
+     * @return parents in forest indexed by dense vertex index of graph.freeze() (-1 - root of tree)
+     */
+    public static int[] minForestFilterKruskal(Graph graph) {
+        return minForestFilterKruskal(graph.freeze());
+    }
+
+    /**
+     * Returns minimum spanning forest of a graph snapshot
+     * @see #minForestFilterKruskal(Graph)
+     */
+    public static int[] minForestFilterKruskal(FrozenGraph graph) {
+        if (graph.isDirected())
+            throw new UnsupportedOperationException("Kruscal's algorithm works only for undirected graphs");
+        IntList forest = new FilterKruskal(graph).run();
+        return forestParents(graph, forest.toArray(), forest.size());
+    }
+
+    /**
+     * Returns minimum spanning forest found by parallel Borůvka's algorithm. Ties of weights are broken by
+     * order of edges, so forest is the same as the one of {@link #minForestKruskal(Graph, ExecutorService, int)}.
+     * Working only for undirected graph
+     * @param executor executor for tasks or null to run on the calling thread
+     * @param parallelism count of tasks every step is split into (usually count of threads)
+     * @return parents in forest indexed by dense vertex index of graph.freeze() (-1 - root of tree)
+     */
+    public static int[] minForestBoruvka(Graph graph, ExecutorService executor, int parallelism) {
+        return minForestBoruvka(graph.freeze(), executor, parallelism);
+    }
+
+    /**
+     * Returns minimum spanning forest of a graph snapshot
+     * @see #minForestBoruvka(Graph, ExecutorService, int)
+     */
+    public static int[] minForestBoruvka(FrozenGraph graph, ExecutorService executor, int parallelism) {
+        if (graph.isDirected())
+            throw new UnsupportedOperationException("Boruvka's algorithm works only for undirected graphs");
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        IntList forest = new Boruvka(graph, executor, parallelism).run();
+        return forestParents(graph, forest.toArray(), forest.size());
+    }
+
+    /**
+     * Roots trees of forest given by edges: the least vertex of every tree becomes its root
+     * @param edges indexes of forest edges in edge arrays of graph
+     * @param size count of edges
+     * @return parents indexed by dense vertex index (-1 - root)
+     */
+    static int[] forestParents(FrozenGraph graph, int[] edges, int size) {
+        int n = graph.vertexCount();
+        // adjacency of forest in CSR form
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < size; i++) {
+            offsets[graph.edgeOut[edges[i]] + 1]++;
+            offsets[graph.edgeIn[edges[i]] + 1]++;
+        }
+        for (int v = 0; v < n; v++)
+            offsets[v + 1] += offsets[v];
+        int[] adjacent = new int[2 * size];
+        int[] fill = Arrays.copyOf(offsets, n);
+        for (int i = 0; i < size; i++) {
+            int out = graph.edgeOut[edges[i]];
+            int in = graph.edgeIn[edges[i]];
+            adjacent[fill[out]++] = in;
+            adjacent[fill[in]++] = out;
+        }
+
+        int[] parents = new int[n];
+        boolean[] reached = new boolean[n];
+        int[] queue = new int[n];
+        Arrays.fill(parents, -1);
+        for (int root = 0; root < n; root++) {
+            if (reached[root])
+                continue;
+            reached[root] = true;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = root;
+            while (head < tail) {
+                int vertex = queue[head++];
+                for (int i = offsets[vertex]; i < offsets[vertex + 1]; i++) {
+                    int child = adjacent[i];
+                    if (!reached[child]) {
+                        reached[child] = true;
+                        parents[child] = vertex;
+                        queue[tail++] = child;
                     }
                 }
-        );
-
-        // for algorithm we use disjoint set forest data structure (a.k.a. union-find, merge-find etc. see wikipedia)
-        DisjointSetForest<Integer> set = new DisjointSetForest<>();
-        for (Integer number : graph.vertexes())
-            set.makeSet(number);
-        // adding edges to tree, while it can't be possible to add edge that don't creates a cycle
-        for (Graph.Edge edge : edges) {
-            if (set.find(edge.getIn()) != set.find(edge.getOut())) {
-                if (!tree.containsKey(edge.getIn()))
-                    tree.put(edge.getIn(), edge.getOut());
-                else
-                    tree.put(edge.getOut(), edge.getIn());
-                set.union(edge.getIn(), edge.getOut());
             }
         }
+        return parents;
+    }
+
+    /**
+     * Converts parents of forest into map of vertex numbers (key - child, value - parent)
+     */
+    static Map<Integer, Integer> treeMap(FrozenGraph graph, int[] parents) {
+        Map<Integer, Integer> tree = new HashMap<>();
+        for (int v = 0; v < parents.length; v++)
+            if (parents[v] != -1)
+                tree.put(graph.numbers[v], graph.numbers[parents[v]]);
         return tree;
     }
 
@@ -114,98 +238,366 @@ public class Algorithms {
      * @return map represents branches of maximum-spanning-tree (key - child, value - parent)
      */
     public static Map<Integer, Integer> maxTreePrim(Graph graph) {
+        return maxTreePrim(graph.freeze());
+    }
+
+    /**
+     * Returns maximum spanning tree of a graph snapshot
+     * @see #maxTreePrim(Graph)
+     */
+    public static Map<Integer, Integer> maxTreePrim(FrozenGraph graph) {
+        return treeMap(graph, spanningForestPrim(graph, true));
+    }
+
+    /**
+     * Returns minimum or maximum spanning forest found by Prim's algorithm. Unlabeled vertexes are kept
+     * in indexed heap by the best known edge from tree, so it takes O(E log V) time.
+     * Every tree is grown from its least vertex. Working only for undirected graph
+     * @param maximum true - maximum spanning forest, false - minimum one
+     * @return parents in forest indexed by dense vertex index of graph.freeze() (-1 - root of tree)
+     */
+    public static int[] spanningForestPrim(Graph graph, boolean maximum) {
+        return spanningForestPrim(graph.freeze(), maximum);
+    }
+
+    /**
+     * Returns minimum or maximum spanning forest of a graph snapshot
+     * @see #spanningForestPrim(Graph, boolean)
+     */
+    public static int[] spanningForestPrim(FrozenGraph graph, boolean maximum) {
         if (graph.isDirected())
             throw new UnsupportedOperationException("Prim's algorithm works only for undirected graphs");
-        Map<Integer, Integer> tree = new HashMap<>();
-        List<Graph.Edge> edges = new ArrayList<>();
-        Set<Integer> labeled = new HashSet<>();
-        Iterator<Integer> vertexIt = graph.vertexes().iterator();
-        // continue while there are vertexes to add
-        while (vertexIt.hasNext()) {
-            int vertex = vertexIt.next();
-            // if vertex is labeled - skip it
-            if (labeled.contains(vertex))
+        int n = graph.vertexCount();
+        int[] parents = new int[n];
+        boolean[] labeled = new boolean[n];
+        Arrays.fill(parents, -1);
+        // key of vertex is weight of the best known edge from tree, negated for maximum
+        IndexedMinHeap heap = new IndexedMinHeap(n);
+        for (int root = 0; root < n; root++) {
+            if (labeled[root])
                 continue;
-            labeled.add(vertex);
-            // Add to list all edges adjacent to vertex
-            edges.addAll(graph.getAdjacentEdges(vertex));
-            // While we have edges to add
-            while (!edges.isEmpty()) {
-
-                // sort all edges by weight
-                Collections.sort(edges, new Comparator<Graph.Edge>() {
-                            @Override
-                            public int compare(Graph.Edge o1, Graph.Edge o2) {
-                                return o2.getWeight() - o1.getWeight();
-                            }
-                        }
-                );
-                Iterator<Graph.Edge> it = edges.iterator();
-                while (it.hasNext()) {
-                    Graph.Edge edge = it.next();
-                    if (!labeled.contains(edge.getIn())) {
-                        labeled.add(edge.getIn());
-                        edges.addAll(graph.getAdjacentEdges(edge.getIn()));
-                        tree.put(edge.getIn(), edge.getOut());
-                        break;
-                    }
-                    if (!labeled.contains(edge.getOut())) {
-                        labeled.add(edge.getOut());
-                        edges.addAll(graph.getAdjacentEdges(edge.getOut()));
-                        tree.put(edge.getOut(), edge.getIn());
-                        break;
-                    }
-                    it.remove();
+            heap.offer(root, 0);
+            while (!heap.isEmpty()) {
+                int vertex = heap.poll();
+                labeled[vertex] = true;
+                for (int slot = graph.offsets[vertex]; slot < graph.offsets[vertex + 1]; slot++) {
+                    int adjacentVertex = graph.targets[slot];
+                    if (labeled[adjacentVertex])
+                        continue;
+                    long key = maximum ? -(long) graph.weights[slot] : graph.weights[slot];
+                    if (heap.offer(adjacentVertex, key))
+                        parents[adjacentVertex] = vertex;
                 }
             }
         }
-        return tree;
+        return parents;
     }
 
     /**
-     * Returns list of node numbers that represents the shortest path from source to destination. Used Dijkstra algorithm
+     * Returns list of node numbers that represents the shortest path from source to destination. Used Dijkstra algorithm.
+     * Every vertex is settled once, so search stops on negative weights too, but then path may be not the shortest
      * @param source source vertex number
      * @param destination destination vertex number
      * @return list representing shortest path from source to destination
      */
     public static List<Integer> shortestPathDijkstra(Graph graph, int source, int destination) {
-        Map<Integer, Integer> dist = new HashMap<>();
-        Map<Integer, Integer> prev = new HashMap<>();
-        Set<Integer> unvisited = new TreeSet(graph.vertexes());
+        return shortestPathDijkstra(graph.freeze(), source, destination);
+    }
 
-        dist.put(source, 0);
+    /**
+     * Returns shortest path on a graph snapshot
+     * @see #shortestPathDijkstra(Graph, int, int)
+     */
+    public static List<Integer> shortestPathDijkstra(FrozenGraph graph, int source, int destination) {
+        int n = graph.vertexCount();
+        int from = graph.indexOf(source);
+        int to = graph.indexOf(destination);
+        if (from == -1 || to == -1)
+            return null;
+        long[] dist = new long[n];
+        int[] prev = new int[n];
+        dijkstra(graph, from, to, dist, prev);
+        return buildPath(graph, prev, from, to);
+    }
 
-        while (!unvisited.isEmpty()) {
-            int min = -1;
-            for (int i : unvisited) {
-                if (dist.containsKey(i) && (min == - 1 || dist.get(i) > dist.get(min)))
-                    min = i;
-            }
-            if (min == -1)
+    /**
+     * Returns list of node numbers that represents the shortest path from source to destination.
+     * Used bidirectional Dijkstra algorithm: searches from source by outbound edges and from destination
+     * by inbound edges meet in the middle, so for point-to-point query they settle much less vertexes
+     * than one-sided search. Weights must be non-negative
+     * @param source source vertex number
+     * @param destination destination vertex number
+     * @return list representing shortest path from source to destination
+     */
+    public static List<Integer> shortestPathBidirectional(Graph graph, int source, int destination) {
+        return shortestPathBidirectional(graph.freeze(), source, destination);
+    }
+
+    /**
+     * Returns shortest path on a graph snapshot with bidirectional search
+     * @see #shortestPathBidirectional(Graph, int, int)
+     */
+    public static List<Integer> shortestPathBidirectional(FrozenGraph graph, int source, int destination) {
+        int n = graph.vertexCount();
+        int from = graph.indexOf(source);
+        int to = graph.indexOf(destination);
+        if (from == -1 || to == -1 || from == to)
+            return null;
+        // backward search goes from destination by inbound edges, its prev is the next vertex of path
+        long[] distForward = new long[n];
+        long[] distBackward = new long[n];
+        int[] prevForward = new int[n];
+        int[] nextBackward = new int[n];
+        Arrays.fill(distForward, Long.MAX_VALUE);
+        Arrays.fill(distBackward, Long.MAX_VALUE);
+        Arrays.fill(prevForward, -1);
+        Arrays.fill(nextBackward, -1);
+        // every vertex is settled once by every search, so negative weights can't make them loop
+        boolean[] settledForward = new boolean[n];
+        boolean[] settledBackward = new boolean[n];
+        IndexedMinHeap forward = new IndexedMinHeap(n);
+        IndexedMinHeap backward = new IndexedMinHeap(n);
+        distForward[from] = 0;
+        distBackward[to] = 0;
+        forward.offer(from, 0);
+        backward.offer(to, 0);
+
+        // length of the shortest path found so far and vertex where its halves meet
+        long best = Long.MAX_VALUE;
+        int meet = -1;
+        // if one search is exhausted, every path it could be part of has been already found
+        while (!forward.isEmpty() && !backward.isEmpty()) {
+            long forwardMin = forward.key(forward.peek());
+            long backwardMin = backward.key(backward.peek());
+            // no path through unsettled vertexes can be shorter than the best one
+            if (best != Long.MAX_VALUE && forwardMin + backwardMin >= best)
                 break;
-            int current_node = min;
-            unvisited.remove(current_node);
-
-            for (Graph.Edge edge : graph.getAdjacentEdges(current_node)) {
-                int adjacentVertex = (edge.getIn() != current_node) ? edge.getIn() : edge.getOut();
-                int alt = dist.get(current_node) + edge.getWeight();
-                if (!dist.containsKey(adjacentVertex) || alt < dist.get(adjacentVertex)) {
-                    dist.put(adjacentVertex, alt);
-                    prev.put(adjacentVertex, current_node);
+            boolean isForward = forwardMin <= backwardMin;
+            IndexedMinHeap heap = isForward ? forward : backward;
+            long[] dist = isForward ? distForward : distBackward;
+            long[] otherDist = isForward ? distBackward : distForward;
+            int[] prev = isForward ? prevForward : nextBackward;
+            boolean[] settled = isForward ? settledForward : settledBackward;
+            int[] offsets = isForward ? graph.offsets : graph.inOffsets;
+            int[] targets = isForward ? graph.targets : graph.sources;
+            int[] weights = isForward ? graph.weights : graph.inWeights;
+
+            int vertex = heap.poll();
+            settled[vertex] = true;
+            long distance = dist[vertex];
+            for (int slot = offsets[vertex]; slot < offsets[vertex + 1]; slot++) {
+                int adjacentVertex = targets[slot];
+                long alt = distance + weights[slot];
+                if (!settled[adjacentVertex] && alt < dist[adjacentVertex]) {
+                    dist[adjacentVertex] = alt;
+                    prev[adjacentVertex] = vertex;
+                    heap.offer(adjacentVertex, alt);
+                    if (otherDist[adjacentVertex] != Long.MAX_VALUE && alt + otherDist[adjacentVertex] < best) {
+                        best = alt + otherDist[adjacentVertex];
+                        meet = adjacentVertex;
+                    }
                 }
             }
         }
+        if (meet == -1)
+            return null;
 
         List<Integer> result = new ArrayList<>();
-        if (!prev.containsKey(destination))
+        for (int node = meet; node != -1; node = prevForward[node])
+            result.add(graph.numbers[node]);
+        Collections.reverse(result);
+        for (int node = nextBackward[meet]; node != -1; node = nextBackward[node])
+            result.add(graph.numbers[node]);
+        return result;
+    }
+
+    /**
+     * Returns list of node numbers that represents the shortest path from source to destination. Used A* algorithm:
+     * vertexes are settled in order of path length estimate through them, so search goes towards destination
+     * @param source source vertex number
+     * @param destination destination vertex number
+     * @param heuristic consistent estimate of remaining path length
+     * @return list representing shortest path from source to destination
+     */
+    public static List<Integer> shortestPathAStar(Graph graph, int source, int destination, Heuristic heuristic) {
+        return shortestPathAStar(graph.freeze(), source, destination, heuristic);
+    }
+
+    /**
+     * Returns shortest path on a graph snapshot with A* search
+     * @see #shortestPathAStar(Graph, int, int, Heuristic)
+     */
+    public static List<Integer> shortestPathAStar(FrozenGraph graph, int source, int destination,
+                                                  Heuristic heuristic) {
+        int n = graph.vertexCount();
+        int from = graph.indexOf(source);
+        int to = graph.indexOf(destination);
+        if (from == -1 || to == -1)
+            return null;
+        long[] dist = new long[n];
+        int[] prev = new int[n];
+        // estimate of every vertex is asked once, -1 - not asked yet
+        long[] estimate = new long[n];
+        // every vertex is settled once, that needs consistent heuristic, and negative weights can't make search loop
+        boolean[] settled = new boolean[n];
+        Arrays.fill(dist, Long.MAX_VALUE);
+        Arrays.fill(prev, -1);
+        Arrays.fill(estimate, -1);
+        IndexedMinHeap heap = new IndexedMinHeap(n);
+
+        dist[from] = 0;
+        heap.offer(from, 0);
+        while (!heap.isEmpty()) {
+            int vertex = heap.poll();
+            if (vertex == to)
+                break;
+            settled[vertex] = true;
+            long distance = dist[vertex];
+            for (int slot = graph.offsets[vertex]; slot < graph.offsets[vertex + 1]; slot++) {
+                int adjacentVertex = graph.targets[slot];
+                long alt = distance + graph.weights[slot];
+                if (!settled[adjacentVertex] && alt < dist[adjacentVertex]) {
+                    dist[adjacentVertex] = alt;
+                    prev[adjacentVertex] = vertex;
+                    if (estimate[adjacentVertex] == -1)
+                        estimate[adjacentVertex] = heuristic.estimate(graph.numbers[adjacentVertex], destination);
+                    heap.offer(adjacentVertex, alt + estimate[adjacentVertex]);
+                }
+            }
+        }
+        return buildPath(graph, prev, from, to);
+    }
+
+    /**
+     * Returns tree of shortest paths from source to all reachable vertexes. Used Dijkstra algorithm
+     * @param source source vertex number
+     * @return shortest path tree or null if there are no such a vertex
+     */
+    public static ShortestPathTree shortestPathTree(Graph graph, int source) {
+        long version = graph.version();
+        FrozenGraph frozen = graph.freeze();
+        int from = frozen.indexOf(source);
+        if (from == -1)
+            return null;
+        long[] dist = new long[frozen.vertexCount()];
+        int[] prev = new int[frozen.vertexCount()];
+        dijkstra(frozen, from, -1, dist, prev);
+        return new ShortestPathTree(frozen, version, from, dist, prev);
+    }
+
+    /**
+     * Returns tree of breadth-first search from source: hop distances and parents of all reachable vertexes
+     * @param source source vertex number
+     * @return breadth-first tree or null if there are no such a vertex
+     */
+    public static BreadthFirstTree breadthFirstTree(Graph graph, int source) {
+        return breadthFirstTree(graph, source, null, 1);
+    }
+
+    /**
+     * Returns tree of breadth-first search from source, found by direction-optimizing search with parallel steps.
+     * When all edges have the same non-negative weight, paths of the tree are the shortest ones
+     * @param source source vertex number
+     * @param executor executor for tasks of search steps or null to search on the calling thread
+     * @param parallelism count of tasks every step is split into (usually count of threads)
+     * @return breadth-first tree or null if there are no such a vertex
+     */
+    public static BreadthFirstTree breadthFirstTree(Graph graph, int source,
+                                                    ExecutorService executor, int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        long version = graph.version();
+        FrozenGraph frozen = graph.freeze();
+        int from = frozen.indexOf(source);
+        if (from == -1)
+            return null;
+        return new BreadthFirstSearch(frozen, executor, parallelism).run(version, from);
+    }
+
+    /**
+     * Returns tree of shortest paths from source to all reachable vertexes, found by parallel delta-stepping.
+     * Width of distance buckets is tuned by weight statistics of graph
+     * @param source source vertex number
+     * @param executor executor for relaxation tasks
+     * @param parallelism count of tasks every relaxation round is split into (usually count of threads)
+     * @return shortest path tree or null if there are no such a vertex
+     * @throws IllegalArgumentException if graph has negative weights
+     */
+    public static ShortestPathTree shortestPathTreeParallel(Graph graph, int source,
+                                                            ExecutorService executor, int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        long version = graph.version();
+        long delta = DeltaStepping.delta(graph.statistics());
+        FrozenGraph frozen = graph.freeze();
+        int from = frozen.indexOf(source);
+        if (from == -1)
+            return null;
+        DeltaStepping search = new DeltaStepping(frozen, executor, parallelism, delta);
+        int[] prev = new int[frozen.vertexCount()];
+        long[] dist = search.run(from, prev);
+        return new ShortestPathTree(frozen, version, from, dist, prev);
+    }
+
+    /**
+     * Dijkstra's algorithm with binary heap: O((V + E) log V).
+     * Heap is indexed by vertex, so every vertex is in heap at most once and its key is decreased in place.
+     * Settled vertexes are never put back into heap: with non-negative weights they can't be improved anyway,
+     * and with negative ones search still stops (every vertex is settled once), though distances can be not
+     * the shortest. Search stops as soon as destination is settled, dist and prev are final only for settled
+     * vertexes
+     * @param from dense index of source
+     * @param to dense index of destination or -1 to build shortest path tree of all reachable vertexes
+     * @param dist array to be filled with distances (Long.MAX_VALUE - vertex is not reached)
+     * @param prev array to be filled with predecessors (-1 - no predecessor)
+     */
+    static void dijkstra(FrozenGraph graph, int from, int to, long[] dist, int[] prev) {
+        Arrays.fill(dist, Long.MAX_VALUE);
+        Arrays.fill(prev, -1);
+        IndexedMinHeap heap = new IndexedMinHeap(graph.vertexCount());
+        boolean[] settled = new boolean[graph.vertexCount()];
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        int[] weights = graph.weights;
+
+        dist[from] = 0;
+        heap.offer(from, 0);
+        while (!heap.isEmpty()) {
+            int vertex = heap.poll();
+            if (vertex == to)
+                break;
+            settled[vertex] = true;
+            long distance = dist[vertex];
+            for (int slot = offsets[vertex]; slot < offsets[vertex + 1]; slot++) {
+                int adjacentVertex = targets[slot];
+                long alt = distance + weights[slot];
+                if (!settled[adjacentVertex] && alt < dist[adjacentVertex]) {
+                    dist[adjacentVertex] = alt;
+                    prev[adjacentVertex] = vertex;
+                    heap.offer(adjacentVertex, alt);
+                }
+            }
+        }
+    }
+
+    /**
+     * Restores path from the tree of predecessors
+     * @param prev predecessors indexed by dense vertex index (-1 - no predecessor)
+     * @param from dense index of source
+     * @param to dense index of destination
+     * @return list of vertex numbers from source to destination or null if destination is unreachable
+     */
+    static List<Integer> buildPath(FrozenGraph graph, int[] prev, int from, int to) {
+        if (prev[to] == -1)
             return null;
 
-        int node = destination;
-        while (node != source) {
-            result.add(node);
-            node = prev.get(node);
+        List<Integer> result = new ArrayList<>();
+        int node = to;
+        while (node != from) {
+            result.add(graph.numbers[node]);
+            node = prev[node];
         }
-        result.add(source);
+        result.add(graph.numbers[from]);
         Collections.reverse(result);
         return result;
     }
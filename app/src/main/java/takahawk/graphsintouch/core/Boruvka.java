@@ -0,0 +1,190 @@
+package takahawk.graphsintouch.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import takahawk.takalibrary.ConcurrentUnionFind;
+import takahawk.takalibrary.IntList;
+import takahawk.takalibrary.Parallel;
+
+/**
+ * Parallel Borůvka's algorithm of minimum spanning forest.
+ * Every round finds the cheapest edge going out of every component and adds all of them to forest at once,
+ * so count of components is at least halved and there are O(log V) rounds. Edges are ordered by weight and
+ * then by index, it is a strict order, so chosen edges never make a cycle and forest is the same one that
+ * Kruskal's algorithm with stable sort finds. Cheapest edges are found by atomic minimum of (weight, index)
+ * packed into long, components are joined by concurrent union-find. Edges inside components are dropped
+ * after every round.
+ * Used by {@link Algorithms#minForestBoruvka(Graph, ExecutorService, int)}
+ * @author takahawk
+ */
+class Boruvka {
+    // smaller steps are done on the calling thread
+    private static final int PARALLEL_THRESHOLD = 4096;
+    private static final long NONE = Long.MAX_VALUE;
+
+    private final FrozenGraph graph;
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final int n;
+    // component of every vertex at the beginning of round
+    private final int[] components;
+    // the cheapest edge of every component: weight in high half, edge index in low half
+    private final AtomicLongArray cheapest;
+    private final ConcurrentUnionFind sets;
+
+    /**
+     * @param executor executor for tasks or null to run on the calling thread
+     * @param parallelism count of tasks every step is split into
+     */
+    Boruvka(FrozenGraph graph, ExecutorService executor, int parallelism) {
+        this.graph = graph;
+        this.executor = executor;
+        this.parallelism = (executor == null) ? 1 : parallelism;
+        n = graph.vertexCount();
+        components = new int[n];
+        for (int v = 0; v < n; v++)
+            components[v] = v;
+        cheapest = new AtomicLongArray(n);
+        for (int v = 0; v < n; v++)
+            cheapest.set(v, NONE);
+        sets = new ConcurrentUnionFind(n);
+    }
+
+    /**
+     * Finds minimum spanning forest
+     * @return indexes of forest edges in edge arrays of graph
+     */
+    IntList run() {
+        IntList forest = new IntList();
+        int[] edges = new int[graph.edgeCount()];
+        for (int e = 0; e < edges.length; e++)
+            edges[e] = e;
+        while (true) {
+            edges = findCheapest(edges);
+            if (edges.length == 0)
+                break;
+            join(forest);
+            relabel();
+        }
+        return forest;
+    }
+
+    // finds the cheapest edge of every component, returns edges between different components
+    private int[] findCheapest(final int[] edges) {
+        if (parallelism == 1 || edges.length < PARALLEL_THRESHOLD)
+            return findCheapest(edges, 0, edges.length).toArray();
+        List<Callable<IntList>> tasks = new ArrayList<>();
+        int chunk = (edges.length + parallelism - 1) / parallelism;
+        for (int begin = 0; begin < edges.length; begin += chunk) {
+            final int first = begin;
+            final int last = Math.min(edges.length, begin + chunk);
+            tasks.add(new Callable<IntList>() {
+                @Override
+                public IntList call() {
+                    return findCheapest(edges, first, last);
+                }
+            });
+        }
+        List<IntList> kept = Parallel.invokeAll(executor, tasks);
+        int size = 0;
+        for (IntList list : kept)
+            size += list.size();
+        int[] result = new int[size];
+        int position = 0;
+        for (IntList list : kept)
+            for (int i = 0; i < list.size(); i++)
+                result[position++] = list.get(i);
+        return result;
+    }
+
+    private IntList findCheapest(int[] edges, int first, int last) {
+        IntList kept = new IntList();
+        for (int i = first; i < last; i++) {
+            int e = edges[i];
+            int out = components[graph.edgeOut[e]];
+            int in = components[graph.edgeIn[e]];
+            if (out == in)
+                continue;
+            kept.add(e);
+            // edge index is non-negative, so long order is order of weight and then of index
+            long key = ((long) graph.edgeWeight[e] << 32) | e;
+            minimize(out, key);
+            minimize(in, key);
+        }
+        return kept;
+    }
+
+    private void minimize(int component, long key) {
+        long old = cheapest.get(component);
+        while (key < old && !cheapest.compareAndSet(component, old, key))
+            old = cheapest.get(component);
+    }
+
+    // joins every component with the end of its cheapest edge, adds edges that joined something to forest
+    private void join(IntList forest) {
+        if (parallelism == 1 || n < PARALLEL_THRESHOLD) {
+            join(0, n, forest);
+            return;
+        }
+        List<Callable<IntList>> tasks = new ArrayList<>();
+        int chunk = (n + parallelism - 1) / parallelism;
+        for (int begin = 0; begin < n; begin += chunk) {
+            final int first = begin;
+            final int last = Math.min(n, begin + chunk);
+            tasks.add(new Callable<IntList>() {
+                @Override
+                public IntList call() {
+                    IntList joined = new IntList();
+                    join(first, last, joined);
+                    return joined;
+                }
+            });
+        }
+        for (IntList joined : Parallel.invokeAll(executor, tasks))
+            for (int i = 0; i < joined.size(); i++)
+                forest.add(joined.get(i));
+    }
+
+    private void join(int first, int last, IntList joined) {
+        for (int v = first; v < last; v++) {
+            long key = cheapest.get(v);
+            if (key == NONE)
+                continue;
+            cheapest.set(v, NONE);
+            int e = (int) key;
+            // two components that chose the same edge are joined once
+            if (sets.union(graph.edgeOut[e], graph.edgeIn[e]))
+                joined.add(e);
+        }
+    }
+
+    private void relabel() {
+        if (parallelism == 1 || n < PARALLEL_THRESHOLD) {
+            relabel(0, n);
+            return;
+        }
+        List<Callable<Void>> tasks = new ArrayList<>();
+        int chunk = (n + parallelism - 1) / parallelism;
+        for (int begin = 0; begin < n; begin += chunk) {
+            final int first = begin;
+            final int last = Math.min(n, begin + chunk);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    relabel(first, last);
+                    return null;
+                }
+            });
+        }
+        Parallel.invokeAll(executor, tasks);
+    }
+
+    private void relabel(int first, int last) {
+        for (int v = first; v < last; v++)
+            components[v] = sets.find(v);
+    }
+}
@@ -0,0 +1,208 @@
+package takahawk.graphsintouch.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import takahawk.takalibrary.Parallel;
+
+/**
+ * Direction-optimizing breadth-first search.
+ * Frontier and visited sets are bitsets. Top-down step goes from frontier vertexes over their edges,
+ * bottom-up step goes from unvisited vertexes over their inbound edges and stops at the first one that comes
+ * from frontier. When frontier is big, bottom-up step checks much less edges, as most unvisited vertexes find
+ * a parent at once. Search switches to bottom-up when edges of frontier are more than 1/ALPHA of edges of
+ * unvisited vertexes, and back to top-down when frontier is less than 1/BETA of vertexes.
+ * Both steps are split into tasks by ranges of bitset words. In bottom-up step every task writes only its own
+ * words, in top-down step every task fills its own next frontier, they are merged after step
+ * (vertex found by two tasks gets parent from one of them, both are right).
+ * Used by {@link Algorithms#breadthFirstTree(Graph, int, ExecutorService, int)}
+ * @author takahawk
+ */
+class BreadthFirstSearch {
+    private static final int ALPHA = 14;
+    private static final int BETA = 24;
+    // steps over less bitset words are done on the calling thread
+    private static final int PARALLEL_THRESHOLD = 64;
+
+    private final FrozenGraph graph;
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final int n;
+    private final int words;
+    private long[] frontier;
+    private long[] next;
+    private final long[] visited;
+    private final int[] hops;
+    private final int[] parents;
+    // next frontiers of top-down tasks
+    private long[][] found;
+
+    /**
+     * @param executor executor for tasks or null to search on the calling thread
+     * @param parallelism count of tasks every step is split into
+     */
+    BreadthFirstSearch(FrozenGraph graph, ExecutorService executor, int parallelism) {
+        this.graph = graph;
+        this.executor = executor;
+        this.parallelism = (executor == null) ? 1 : parallelism;
+        n = graph.vertexCount();
+        words = (n + 63) >>> 6;
+        frontier = new long[words];
+        next = new long[words];
+        visited = new long[words];
+        hops = new int[n];
+        parents = new int[n];
+    }
+
+    /**
+     * Searches from source
+     * @param from dense index of source
+     * @return tree of search
+     */
+    BreadthFirstTree run(long version, int from) {
+        Arrays.fill(hops, -1);
+        Arrays.fill(parents, -1);
+        frontier[from >>> 6] |= 1L << from;
+        visited[from >>> 6] |= 1L << from;
+        hops[from] = 0;
+        int frontierSize = 1;
+        long frontierEdges = degree(from);
+        long unvisitedEdges = graph.offsets[n] - frontierEdges;
+        boolean bottomUp = false;
+        int level = 0;
+        while (frontierSize > 0) {
+            if (!bottomUp && frontierEdges > unvisitedEdges / ALPHA)
+                bottomUp = true;
+            else if (bottomUp && frontierSize < n / BETA)
+                bottomUp = false;
+            level++;
+            Arrays.fill(next, 0);
+            if (bottomUp)
+                bottomUpStep(level);
+            else
+                topDownStep(level);
+
+            frontierSize = 0;
+            frontierEdges = 0;
+            for (int w = 0; w < words; w++) {
+                long bits = next[w];
+                visited[w] |= bits;
+                frontierSize += Long.bitCount(bits);
+                while (bits != 0) {
+                    frontierEdges += degree((w << 6) + Long.numberOfTrailingZeros(bits));
+                    bits &= bits - 1;
+                }
+            }
+            unvisitedEdges -= frontierEdges;
+            long[] temp = frontier;
+            frontier = next;
+            next = temp;
+        }
+        return new BreadthFirstTree(graph, version, from, hops, parents);
+    }
+
+    private int degree(int vertex) {
+        return graph.offsets[vertex + 1] - graph.offsets[vertex];
+    }
+
+    private void topDownStep(final int level) {
+        if (parallelism == 1 || words < PARALLEL_THRESHOLD) {
+            topDown(level, 0, words, next);
+            return;
+        }
+        if (found == null)
+            found = new long[parallelism][words];
+        List<Callable<Void>> tasks = new ArrayList<>();
+        int chunk = (words + parallelism - 1) / parallelism;
+        for (int i = 0; i * chunk < words; i++) {
+            final int first = i * chunk;
+            final int last = Math.min(words, first + chunk);
+            final long[] result = found[i];
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    topDown(level, first, last, result);
+                    return null;
+                }
+            });
+        }
+        Parallel.invokeAll(executor, tasks);
+        for (int i = 0; i < tasks.size(); i++) {
+            long[] result = found[i];
+            for (int w = 0; w < words; w++) {
+                next[w] |= result[w];
+                result[w] = 0;
+            }
+        }
+    }
+
+    // expands frontier vertexes of words [first, last) into result
+    private void topDown(int level, int first, int last, long[] result) {
+        int[] offsets = graph.offsets;
+        int[] targets = graph.targets;
+        for (int w = first; w < last; w++) {
+            long bits = frontier[w];
+            while (bits != 0) {
+                int vertex = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                for (int slot = offsets[vertex]; slot < offsets[vertex + 1]; slot++) {
+                    int target = targets[slot];
+                    long bit = 1L << target;
+                    if ((visited[target >>> 6] & bit) == 0 && (result[target >>> 6] & bit) == 0) {
+                        result[target >>> 6] |= bit;
+                        hops[target] = level;
+                        parents[target] = vertex;
+                    }
+                }
+            }
+        }
+    }
+
+    private void bottomUpStep(final int level) {
+        if (parallelism == 1 || words < PARALLEL_THRESHOLD) {
+            bottomUp(level, 0, words);
+            return;
+        }
+        List<Callable<Void>> tasks = new ArrayList<>();
+        int chunk = (words + parallelism - 1) / parallelism;
+        for (int begin = 0; begin < words; begin += chunk) {
+            final int first = begin;
+            final int last = Math.min(words, begin + chunk);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    bottomUp(level, first, last);
+                    return null;
+                }
+            });
+        }
+        Parallel.invokeAll(executor, tasks);
+    }
+
+    // looks for parents of unvisited vertexes of words [first, last) in frontier
+    private void bottomUp(int level, int first, int last) {
+        int[] inOffsets = graph.inOffsets;
+        int[] sources = graph.sources;
+        for (int w = first; w < last; w++) {
+            long bits = ~visited[w];
+            if (w == words - 1 && (n & 63) != 0)
+                bits &= (1L << n) - 1;
+            while (bits != 0) {
+                int vertex = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                for (int slot = inOffsets[vertex]; slot < inOffsets[vertex + 1]; slot++) {
+                    int source = sources[slot];
+                    if ((frontier[source >>> 6] & (1L << source)) != 0) {
+                        next[w] |= 1L << vertex;
+                        hops[vertex] = level;
+                        parents[vertex] = source;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+}
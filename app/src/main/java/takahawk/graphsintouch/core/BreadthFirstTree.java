@@ -0,0 +1,89 @@
+package takahawk.graphsintouch.core;
+
+import java.util.List;
+
+/**
+ * Tree of breadth-first search from one source: hop distances and parents of all reachable vertexes.
+ * Built by {@link Algorithms#breadthFirstTree(Graph, int, java.util.concurrent.ExecutorService, int)}.
+ * Arrays are indexed by dense vertex index of {@link #graph()}.
+ * Tree is bound to the version of graph it was built for.
+ * @author takahawk
+ */
+public class BreadthFirstTree {
+    private final FrozenGraph graph;
+    private final long version;
+    private final int from;
+    private final int[] hops;
+    private final int[] parents;
+
+    BreadthFirstTree(FrozenGraph graph, long version, int from, int[] hops, int[] parents) {
+        this.graph = graph;
+        this.version = version;
+        this.from = from;
+        this.hops = hops;
+        this.parents = parents;
+    }
+
+    /**
+     * Returns graph snapshot that gives dense indexes of arrays
+     * @return graph snapshot
+     */
+    public FrozenGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Returns number of source vertex
+     * @return source vertex number
+     */
+    public int source() {
+        return graph.numbers[from];
+    }
+
+    /**
+     * Returns version of graph that tree is built for
+     * @return graph version
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Returns hop distances from source
+     * @return array of hop counts indexed by dense vertex index, -1 - vertex is unreachable
+     */
+    public int[] hops() {
+        return hops;
+    }
+
+    /**
+     * Returns parents in tree
+     * @return array of parent dense indexes indexed by dense vertex index, -1 - source or unreachable vertex
+     */
+    public int[] parents() {
+        return parents;
+    }
+
+    /**
+     * Returns count of edges on the shortest path from source to destination
+     * @param destination destination vertex number
+     * @return hop count or -1 if destination is unreachable
+     */
+    public int hopsTo(int destination) {
+        int to = graph.indexOf(destination);
+        return (to == -1) ? -1 : hops[to];
+    }
+
+    /**
+     * Returns path with the least count of edges from source to destination in the same form as
+     * {@link Algorithms#shortestPathDijkstra(Graph, int, int)}
+     * @param destination destination vertex number
+     * @return list of vertex numbers from source to destination or null if destination is unreachable
+     */
+    public List<Integer> pathTo(int destination) {
+        int to = graph.indexOf(destination);
+        if (to == -1)
+            return null;
+        return Algorithms.buildPath(graph, parents, from, to);
+    }
+}
@@ -0,0 +1,457 @@
+package takahawk.graphsintouch.core;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Thread-safe graph with the same API as {@link Graph}.
+ * Edges can be added by several threads at once: edge insertion changes only lists of its two vertexes,
+ * so it takes shared graph lock and locks of two stripes these vertexes belong to. Insertions into
+ * different vertex partitions don't block each other.
+ * Structural changes (vertex addition and removal, renumbering, edge removal) take exclusive graph lock.
+ * Whole-graph reads take exclusive lock too, and iterators work over a snapshot, so they never see
+ * half-done changes.
+ * @author takahawk
+ */
+public class ConcurrentGraph
+    extends Graph {
+
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock[] stripes;
+
+    public ConcurrentGraph() {
+        this(false);
+    }
+
+    public ConcurrentGraph(boolean directed) {
+        this(directed, DEFAULT_STRIPES);
+    }
+
+    /**
+     * Creates graph with a given count of lock stripes
+     * @param directed true - if graph is directed, false - if undirected
+     * @param stripeCount count of vertex partitions with their own locks, the more partitions
+     *                    the less contention of parallel edge insertion
+     */
+    public ConcurrentGraph(boolean directed, int stripeCount) {
+        super(directed);
+        if (stripeCount < 1)
+            throw new IllegalArgumentException("Stripe count must be positive: " + stripeCount);
+        stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++)
+            stripes[i] = new ReentrantLock();
+    }
+
+    private ReentrantLock stripe(int index) {
+        return stripes[index % stripes.length];
+    }
+
+    // locks stripes of two vertexes always in the same order, so two insertions can't deadlock
+    private void lockStripes(int first, int second) {
+        int a = first % stripes.length;
+        int b = second % stripes.length;
+        stripes[Math.min(a, b)].lock();
+        if (a != b)
+            stripes[Math.max(a, b)].lock();
+    }
+
+    private void unlockStripes(int first, int second) {
+        int a = first % stripes.length;
+        int b = second % stripes.length;
+        if (a != b)
+            stripes[Math.max(a, b)].unlock();
+        stripes[Math.min(a, b)].unlock();
+    }
+
+    @Override
+    synchronized void modified() {
+        super.modified();
+    }
+
+    @Override
+    synchronized void edgeAdded(int out, int in, int weight) {
+        super.edgeAdded(out, in, weight);
+    }
+
+    @Override
+    synchronized void edgeWeightChanged(int out, int in, int weight, int newWeight) {
+        super.edgeWeightChanged(out, in, weight, newWeight);
+    }
+
+    /**
+     * Adds listener that is notified about every modification of graph.
+     * Listener is called on the thread that modified graph, while graph is locked
+     * @param listener listener
+     */
+    @Override
+    public void addListener(GraphListener listener) {
+        lock.writeLock().lock();
+        try {
+            super.addListener(listener);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeListener(GraphListener listener) {
+        lock.writeLock().lock();
+        try {
+            super.removeListener(listener);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Starts batch of modifications. Batch is common for all threads: changes made by any thread are
+     * published when the outermost batch is ended
+     */
+    @Override
+    public void beginBatch() {
+        lock.writeLock().lock();
+        try {
+            super.beginBatch();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void endBatch() {
+        lock.writeLock().lock();
+        try {
+            super.endBatch();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    void checkMatrix() {
+        // switch of storage would race with parallel insertions, so this graph always uses lists
+    }
+
+    @Override
+    public synchronized long version() {
+        return super.version();
+    }
+
+    /**
+     * Returns copy of graph statistics, as they can be changed by other threads while being read.
+     * Stale extremes are recounted before copying (see {@link GraphStatistics}), so this call takes O(V + E)
+     * time in the worst case, while graph is locked
+     * @return graph statistics at the moment of call
+     */
+    @Override
+    public GraphStatistics statistics() {
+        lock.writeLock().lock();
+        try {
+            GraphStatistics statistics = super.statistics();
+            statistics.refresh();
+            return new GraphStatistics(statistics, null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isDirected() {
+        lock.readLock().lock();
+        try {
+            return super.isDirected();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void setDirected(boolean directed) {
+        lock.writeLock().lock();
+        try {
+            super.setDirected(directed);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns read-only snapshot of current graph state. Unlike {@link Graph#snapshot()}, shared top-level
+     * arrays are copied at once, so following parallel edge insertions don't need to do it
+     * @return read-only graph with the same vertexes, edges and version as this graph has now
+     */
+    @Override
+    public Graph snapshot() {
+        lock.writeLock().lock();
+        try {
+            Graph snapshot = super.snapshot();
+            checkWritable();
+            return snapshot;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int indexOf(int number) {
+        lock.readLock().lock();
+        try {
+            return super.indexOf(number);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int number(int index) {
+        lock.readLock().lock();
+        try {
+            return super.number(index);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int vertexCount() {
+        lock.readLock().lock();
+        try {
+            return super.vertexCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int edgeCount() {
+        // statistics are changed by parallel edge insertions under graph monitor
+        lock.readLock().lock();
+        try {
+            synchronized (this) {
+                return super.edgeCount();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Set<Integer> vertexes() {
+        return snapshot().vertexes();
+    }
+
+    @Override
+    public List<Edge> getAdjacentEdges(int vertex) {
+        lock.readLock().lock();
+        try {
+            int v = super.indexOf(vertex);
+            if (v == -1)
+                return super.getAdjacentEdges(vertex);
+            ReentrantLock stripe = stripe(v);
+            stripe.lock();
+            try {
+                return super.getAdjacentEdges(vertex);
+            } finally {
+                stripe.unlock();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Edge> getAllEdges() {
+        lock.writeLock().lock();
+        try {
+            return super.getAllEdges();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Iterable<Edge> edges() {
+        return snapshot().edges();
+    }
+
+    @Override
+    public Iterable<Edge> edges(int outbound) {
+        return snapshot().edges(outbound);
+    }
+
+    @Override
+    public void forEachEdge(int vertex, IntEdgeConsumer consumer) {
+        lock.writeLock().lock();
+        try {
+            super.forEachEdge(vertex, consumer);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void forEachEdge(IntEdgeConsumer consumer) {
+        lock.writeLock().lock();
+        try {
+            super.forEachEdge(consumer);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean addVertex(int number) {
+        lock.writeLock().lock();
+        try {
+            return super.addVertex(number);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean hasVertex(int number) {
+        lock.readLock().lock();
+        try {
+            return super.hasVertex(number);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int maxNumber() {
+        // statistics are changed by parallel edge insertions under graph monitor
+        lock.readLock().lock();
+        try {
+            synchronized (this) {
+                return super.maxNumber();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeVertex(int number) {
+        lock.writeLock().lock();
+        try {
+            super.removeVertex(number);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void changeVertexNumber(int number, int newNumber) {
+        lock.writeLock().lock();
+        try {
+            super.changeVertexNumber(number, newNumber);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void changeEdgeWeight(int out, int in, int weight) {
+        lock.readLock().lock();
+        try {
+            int outIndex = super.indexOf(out);
+            int inIndex = super.indexOf(in);
+            if (outIndex == -1 || inIndex == -1)
+                return;
+            lockStripes(outIndex, inIndex);
+            try {
+                super.changeEdgeWeight(out, in, weight);
+            } finally {
+                unlockStripes(outIndex, inIndex);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean addEdge(int out, int in, int weight) {
+        lock.readLock().lock();
+        try {
+            // vertex indexes can't change while shared lock is held
+            int outIndex = super.indexOf(out);
+            int inIndex = super.indexOf(in);
+            if (outIndex == -1 || inIndex == -1)
+                return false;
+            lockStripes(outIndex, inIndex);
+            try {
+                return super.addEdge(out, in, weight);
+            } finally {
+                unlockStripes(outIndex, inIndex);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeEdge(int out, int in) {
+        // removal moves entries of a third vertex list, so it can't be done under stripe locks
+        lock.writeLock().lock();
+        try {
+            super.removeEdge(out, in);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean adjacent(int out, int in) {
+        lock.readLock().lock();
+        try {
+            int outIndex = super.indexOf(out);
+            int inIndex = super.indexOf(in);
+            if (outIndex == -1 || inIndex == -1)
+                return false;
+            lockStripes(outIndex, inIndex);
+            try {
+                return super.adjacent(out, in);
+            } finally {
+                unlockStripes(outIndex, inIndex);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int commonNeighbours(int first, int second) {
+        lock.readLock().lock();
+        try {
+            int a = super.indexOf(first);
+            int b = super.indexOf(second);
+            if (a == -1 || b == -1)
+                return 0;
+            // only lists of these two vertexes are read
+            lockStripes(a, b);
+            try {
+                return super.commonNeighbours(first, second);
+            } finally {
+                unlockStripes(a, b);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public FrozenGraph freeze() {
+        lock.writeLock().lock();
+        try {
+            return super.freeze();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
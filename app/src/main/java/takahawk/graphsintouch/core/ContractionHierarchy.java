@@ -0,0 +1,599 @@
+package takahawk.graphsintouch.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import takahawk.takalibrary.IndexedMinHeap;
+
+/**
+ * Contraction hierarchy: index for fast repeated shortest path queries on a graph that rarely changes.
+ * Vertexes are contracted one by one in order of importance. When vertex is contracted, shortcut edges are added
+ * between its neighbours for every shortest path that goes through it (unless local witness search finds another
+ * path that is not longer). Vertex gets rank equal to its position in contraction order.
+ * Query is bidirectional Dijkstra that goes only to vertexes of higher rank in both directions, so it settles
+ * a small part of graph. Shortcuts of found path are unpacked back to original edges.
+ * Index is built for one graph version and is immutable, so it can be queried from several threads.
+ * Weights must be non-negative
+ * @author takahawk
+ */
+public class ContractionHierarchy {
+    // witness search settles at most so much vertexes, if it gives up shortcut is added (it is safe, just redundant).
+    // Priority is only an estimate, so simulated contraction uses shorter search than the real one
+    private static final int SIMULATION_SETTLE_LIMIT = 32;
+    private static final int CONTRACTION_SETTLE_LIMIT = 512;
+
+    private final FrozenGraph graph;
+    private final long version;
+    private final int[] rank;
+
+    /*
+        Upward edges in CSR form. Edge of vertex v in up* arrays goes from v to vertex of higher rank,
+        edge in down* arrays goes to v from vertex of higher rank (backward search follows it from v).
+        Middle is vertex contracted by shortcut or -1 for original edge.
+     */
+    private final int[] upOffsets;
+    private final int[] upTargets;
+    private final long[] upWeights;
+    private final int[] upMiddles;
+    private final int[] downOffsets;
+    private final int[] downSources;
+    private final long[] downWeights;
+    private final int[] downMiddles;
+    private final int shortcutCount;
+
+    private final ThreadLocal<Query> queries = new ThreadLocal<Query>() {
+        @Override
+        protected Query initialValue() {
+            return new Query(rank.length);
+        }
+    };
+
+    private ContractionHierarchy(FrozenGraph graph, long version, int[] rank,
+                                 EdgeList[] up, EdgeList[] down, int shortcutCount) {
+        this.graph = graph;
+        this.version = version;
+        this.rank = rank;
+        this.shortcutCount = shortcutCount;
+        int n = rank.length;
+        upOffsets = new int[n + 1];
+        downOffsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            upOffsets[v + 1] = upOffsets[v] + up[v].size;
+            downOffsets[v + 1] = downOffsets[v] + down[v].size;
+        }
+        upTargets = new int[upOffsets[n]];
+        upWeights = new long[upOffsets[n]];
+        upMiddles = new int[upOffsets[n]];
+        downSources = new int[downOffsets[n]];
+        downWeights = new long[downOffsets[n]];
+        downMiddles = new int[downOffsets[n]];
+        for (int v = 0; v < n; v++) {
+            up[v].copyTo(upTargets, upWeights, upMiddles, upOffsets[v]);
+            down[v].copyTo(downSources, downWeights, downMiddles, downOffsets[v]);
+        }
+    }
+
+    /**
+     * Builds contraction hierarchy of current graph state. Takes much more time than single query,
+     * so it is better done in background on a graph snapshot
+     * @param graph graph with non-negative weights
+     * @return contraction hierarchy
+     */
+    public static ContractionHierarchy build(Graph graph) {
+        long version = graph.version();
+        return new Builder(graph.freeze()).build(version);
+    }
+
+    /**
+     * Returns version of graph hierarchy is built for
+     * @return graph version
+     */
+    public long version() {
+        return version;
+    }
+
+    public int vertexCount() {
+        return rank.length;
+    }
+
+    /**
+     * Returns count of shortcut edges added by contraction
+     * @return count of shortcuts
+     */
+    public int shortcutCount() {
+        return shortcutCount;
+    }
+
+    /**
+     * Returns list of node numbers that represents the shortest path from source to destination,
+     * in the same form as {@link Algorithms#shortestPathDijkstra(Graph, int, int)}
+     * @param source source vertex number
+     * @param destination destination vertex number
+     * @return list representing shortest path from source to destination
+     */
+    public List<Integer> shortestPath(int source, int destination) {
+        int from = graph.indexOf(source);
+        int to = graph.indexOf(destination);
+        if (from == -1 || to == -1 || from == to)
+            return null;
+        Query query = queries.get();
+        try {
+            int meet = query.run(from, to);
+            if (meet == -1)
+                return null;
+            return query.unpack(from, to, meet);
+        } finally {
+            query.reset();
+        }
+    }
+
+    // finds edge out -> in going up from out, returns its slot in up* arrays
+    private int upSlot(int out, int in) {
+        for (int slot = upOffsets[out]; slot < upOffsets[out + 1]; slot++)
+            if (upTargets[slot] == in)
+                return slot;
+        throw new IllegalStateException("No edge " + out + " -> " + in);
+    }
+
+    // finds edge out -> in going down to in, returns its slot in down* arrays
+    private int downSlot(int out, int in) {
+        for (int slot = downOffsets[in]; slot < downOffsets[in + 1]; slot++)
+            if (downSources[slot] == out)
+                return slot;
+        throw new IllegalStateException("No edge " + out + " -> " + in);
+    }
+
+    /**
+     * State of query. Arrays are allocated once per thread, after query only touched entries are reset
+     */
+    private class Query {
+        final long[] forwardDist;
+        final long[] backwardDist;
+        // previous vertex and slot of edge to it in up* (forward) or down* (backward) arrays
+        final int[] forwardPrev;
+        final int[] forwardSlot;
+        final int[] backwardNext;
+        final int[] backwardSlot;
+        final IndexedMinHeap forward;
+        final IndexedMinHeap backward;
+        int[] touched = new int[64];
+        int touchedSize;
+
+        Query(int n) {
+            forwardDist = new long[n];
+            backwardDist = new long[n];
+            Arrays.fill(forwardDist, Long.MAX_VALUE);
+            Arrays.fill(backwardDist, Long.MAX_VALUE);
+            forwardPrev = new int[n];
+            forwardSlot = new int[n];
+            backwardNext = new int[n];
+            backwardSlot = new int[n];
+            forward = new IndexedMinHeap(n);
+            backward = new IndexedMinHeap(n);
+        }
+
+        void touch(int vertex) {
+            if (touchedSize == touched.length)
+                touched = Arrays.copyOf(touched, touchedSize * 2);
+            touched[touchedSize++] = vertex;
+        }
+
+        // returns vertex where the shortest path goes over the top of hierarchy or -1 if there are no path
+        int run(int from, int to) {
+            forwardDist[from] = 0;
+            backwardDist[to] = 0;
+            forwardPrev[from] = -1;
+            backwardNext[to] = -1;
+            touch(from);
+            touch(to);
+            forward.offer(from, 0);
+            backward.offer(to, 0);
+            long best = Long.MAX_VALUE;
+            int meet = -1;
+            while (true) {
+                // search stops when it can't find anything shorter than the best path
+                if (!forward.isEmpty() && forward.key(forward.peek()) >= best)
+                    forward.clear();
+                if (!backward.isEmpty() && backward.key(backward.peek()) >= best)
+                    backward.clear();
+                if (forward.isEmpty() && backward.isEmpty())
+                    break;
+                boolean isForward = backward.isEmpty() ||
+                        (!forward.isEmpty() && forward.key(forward.peek()) <= backward.key(backward.peek()));
+                if (isForward) {
+                    int vertex = forward.poll();
+                    long distance = forwardDist[vertex];
+                    if (backwardDist[vertex] != Long.MAX_VALUE && distance + backwardDist[vertex] < best) {
+                        best = distance + backwardDist[vertex];
+                        meet = vertex;
+                    }
+                    if (stalled(vertex, distance, downOffsets, downSources, downWeights, forwardDist))
+                        continue;
+                    for (int slot = upOffsets[vertex]; slot < upOffsets[vertex + 1]; slot++) {
+                        int target = upTargets[slot];
+                        long alt = distance + upWeights[slot];
+                        if (alt < forwardDist[target]) {
+                            if (forwardDist[target] == Long.MAX_VALUE && backwardDist[target] == Long.MAX_VALUE)
+                                touch(target);
+                            forwardDist[target] = alt;
+                            forwardPrev[target] = vertex;
+                            forwardSlot[target] = slot;
+                            forward.offer(target, alt);
+                        }
+                    }
+                } else {
+                    int vertex = backward.poll();
+                    long distance = backwardDist[vertex];
+                    if (forwardDist[vertex] != Long.MAX_VALUE && distance + forwardDist[vertex] < best) {
+                        best = distance + forwardDist[vertex];
+                        meet = vertex;
+                    }
+                    if (stalled(vertex, distance, upOffsets, upTargets, upWeights, backwardDist))
+                        continue;
+                    for (int slot = downOffsets[vertex]; slot < downOffsets[vertex + 1]; slot++) {
+                        int source = downSources[slot];
+                        long alt = distance + downWeights[slot];
+                        if (alt < backwardDist[source]) {
+                            if (forwardDist[source] == Long.MAX_VALUE && backwardDist[source] == Long.MAX_VALUE)
+                                touch(source);
+                            backwardDist[source] = alt;
+                            backwardNext[source] = vertex;
+                            backwardSlot[source] = slot;
+                            backward.offer(source, alt);
+                        }
+                    }
+                }
+            }
+            return meet;
+        }
+
+        // Stall-on-demand: if vertex is reached shorter over a higher vertex (by edge that goes down to it,
+        // so search itself never follows it), its distance isn't the shortest and search doesn't go further from it
+        boolean stalled(int vertex, long distance, int[] offsets, int[] vertexes, long[] weights, long[] dist) {
+            for (int slot = offsets[vertex]; slot < offsets[vertex + 1]; slot++) {
+                long higher = dist[vertexes[slot]];
+                if (higher != Long.MAX_VALUE && higher + weights[slot] < distance)
+                    return true;
+            }
+            return false;
+        }
+
+        List<Integer> unpack(int from, int to, int meet) {
+            // edges of hierarchy path, from meet down to source and from meet to destination
+            int[] edgeOut = new int[16];
+            int[] edgeIn = new int[16];
+            int[] edgeMiddle = new int[16];
+            int size = 0;
+            for (int vertex = meet; vertex != from; vertex = forwardPrev[vertex]) {
+                if (size == edgeOut.length) {
+                    edgeOut = Arrays.copyOf(edgeOut, size * 2);
+                    edgeIn = Arrays.copyOf(edgeIn, size * 2);
+                    edgeMiddle = Arrays.copyOf(edgeMiddle, size * 2);
+                }
+                edgeOut[size] = forwardPrev[vertex];
+                edgeIn[size] = vertex;
+                edgeMiddle[size] = upMiddles[forwardSlot[vertex]];
+                size++;
+            }
+            // reverse forward half, so edges go from source
+            for (int i = 0, j = size - 1; i < j; i++, j--) {
+                int temp = edgeOut[i]; edgeOut[i] = edgeOut[j]; edgeOut[j] = temp;
+                temp = edgeIn[i]; edgeIn[i] = edgeIn[j]; edgeIn[j] = temp;
+                temp = edgeMiddle[i]; edgeMiddle[i] = edgeMiddle[j]; edgeMiddle[j] = temp;
+            }
+            for (int vertex = meet; vertex != to; vertex = backwardNext[vertex]) {
+                if (size == edgeOut.length) {
+                    edgeOut = Arrays.copyOf(edgeOut, size * 2);
+                    edgeIn = Arrays.copyOf(edgeIn, size * 2);
+                    edgeMiddle = Arrays.copyOf(edgeMiddle, size * 2);
+                }
+                edgeOut[size] = vertex;
+                edgeIn[size] = backwardNext[vertex];
+                edgeMiddle[size] = downMiddles[backwardSlot[vertex]];
+                size++;
+            }
+
+            List<Integer> result = new ArrayList<>();
+            result.add(graph.numbers[from]);
+            // shortcut out -> in over middle is replaced by edges out -> middle and middle -> in,
+            // they are stored at middle, as it is lower than both ends
+            int[] stack = new int[48];
+            for (int e = 0; e < size; e++) {
+                int top = 0;
+                stack[top++] = edgeOut[e];
+                stack[top++] = edgeIn[e];
+                stack[top++] = edgeMiddle[e];
+                while (top > 0) {
+                    int middle = stack[--top];
+                    int in = stack[--top];
+                    int out = stack[--top];
+                    if (middle == -1) {
+                        result.add(graph.numbers[in]);
+                        continue;
+                    }
+                    if (top + 6 > stack.length)
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    // second half is pushed first, so first half is unpacked first
+                    stack[top++] = middle;
+                    stack[top++] = in;
+                    stack[top++] = upMiddles[upSlot(middle, in)];
+                    stack[top++] = out;
+                    stack[top++] = middle;
+                    stack[top++] = downMiddles[downSlot(out, middle)];
+                }
+            }
+            return result;
+        }
+
+        void reset() {
+            for (int i = 0; i < touchedSize; i++) {
+                forwardDist[touched[i]] = Long.MAX_VALUE;
+                backwardDist[touched[i]] = Long.MAX_VALUE;
+            }
+            touchedSize = 0;
+            forward.clear();
+            backward.clear();
+        }
+    }
+
+    /**
+     * Growable list of edges of one vertex in one direction
+     */
+    private static class EdgeList {
+        int[] vertexes = new int[4];
+        long[] weights = new long[4];
+        int[] middles = new int[4];
+        int size;
+
+        void add(int vertex, long weight, int middle) {
+            if (size == vertexes.length) {
+                vertexes = Arrays.copyOf(vertexes, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+                middles = Arrays.copyOf(middles, size * 2);
+            }
+            vertexes[size] = vertex;
+            weights[size] = weight;
+            middles[size] = middle;
+            size++;
+        }
+
+        int indexOf(int vertex) {
+            for (int i = 0; i < size; i++)
+                if (vertexes[i] == vertex)
+                    return i;
+            return -1;
+        }
+
+        void removeAt(int i) {
+            size--;
+            vertexes[i] = vertexes[size];
+            weights[i] = weights[size];
+            middles[i] = middles[size];
+        }
+
+        void copyTo(int[] vertexes, long[] weights, int[] middles, int offset) {
+            System.arraycopy(this.vertexes, 0, vertexes, offset, size);
+            System.arraycopy(this.weights, 0, weights, offset, size);
+            System.arraycopy(this.middles, 0, middles, offset, size);
+        }
+    }
+
+    /**
+     * Contracts vertexes of graph. Remaining graph is kept as lists of outbound and inbound edges,
+     * edges of contracted vertex are moved from it to the resulting upward and downward lists
+     */
+    private static class Builder {
+        final FrozenGraph graph;
+        final int n;
+        final EdgeList[] out;
+        final EdgeList[] in;
+        final EdgeList[] up;
+        final EdgeList[] down;
+        final boolean[] contracted;
+        final int[] deletedNeighbours;
+        final int[] rank;
+        int shortcuts;
+
+        // witness search state, only touched entries are reset
+        final long[] witnessDist;
+        final IndexedMinHeap witnessHeap;
+        int[] touched = new int[64];
+        int touchedSize;
+        // marks[v] == stamp if v is a target of current witness search
+        final int[] marks;
+        int stamp;
+        // updated[v] == next if priority of v is recounted after contraction of previous vertex
+        final int[] updated;
+        int next;
+
+        Builder(FrozenGraph graph) {
+            this.graph = graph;
+            n = graph.vertexCount();
+            out = new EdgeList[n];
+            in = new EdgeList[n];
+            up = new EdgeList[n];
+            down = new EdgeList[n];
+            contracted = new boolean[n];
+            deletedNeighbours = new int[n];
+            rank = new int[n];
+            marks = new int[n];
+            updated = new int[n];
+            Arrays.fill(updated, -1);
+            witnessDist = new long[n];
+            Arrays.fill(witnessDist, Long.MAX_VALUE);
+            witnessHeap = new IndexedMinHeap(n);
+            for (int v = 0; v < n; v++) {
+                out[v] = new EdgeList();
+                in[v] = new EdgeList();
+            }
+            // forward adjacency of undirected graph has both directions of every edge
+            for (int v = 0; v < n; v++) {
+                for (int slot = graph.offsets[v]; slot < graph.offsets[v + 1]; slot++) {
+                    int target = graph.targets[slot];
+                    int weight = graph.weights[slot];
+                    if (weight < 0)
+                        throw new IllegalArgumentException("Contraction hierarchy requires non-negative weights");
+                    // self-loop is never a part of the shortest path
+                    if (target == v)
+                        continue;
+                    out[v].add(target, weight, -1);
+                    in[target].add(v, weight, -1);
+                }
+            }
+        }
+
+        ContractionHierarchy build(long version) {
+            // vertexes are contracted in order of priority. Contraction changes priorities of neighbours,
+            // so they are recounted at once. Priorities of other vertexes can change too (witness paths go
+            // farther), so vertex taken from heap is contracted only if its recounted priority is still minimal
+            IndexedMinHeap order = new IndexedMinHeap(n);
+            for (int v = 0; v < n; v++)
+                order.offer(v, priority(v));
+            while (!order.isEmpty()) {
+                int v = order.poll();
+                long priority = priority(v);
+                if (!order.isEmpty() && priority > order.key(order.peek())) {
+                    order.offer(v, priority);
+                    continue;
+                }
+                rank[v] = next++;
+                contract(v);
+                for (int i = 0; i < up[v].size; i++)
+                    updatePriority(order, up[v].vertexes[i]);
+                for (int i = 0; i < down[v].size; i++)
+                    updatePriority(order, down[v].vertexes[i]);
+            }
+            return new ContractionHierarchy(graph, version, rank, up, down, shortcuts);
+        }
+
+        // recounts priority of neighbour of contracted vertex, if it is not recounted yet
+        void updatePriority(IndexedMinHeap order, int v) {
+            if (updated[v] == next)
+                return;
+            updated[v] = next;
+            order.update(v, priority(v));
+        }
+
+        // edge difference (shortcuts added minus edges removed) and count of contracted neighbours,
+        // the last keeps contraction spread uniformly over graph
+        long priority(int v) {
+            int added = shortcuts(v, true);
+            return 2 * (added - out[v].size - in[v].size) + deletedNeighbours[v];
+        }
+
+        void contract(int v) {
+            shortcuts += shortcuts(v, false);
+            EdgeList outbound = out[v];
+            EdgeList inbound = in[v];
+            for (int i = 0; i < outbound.size; i++) {
+                int x = outbound.vertexes[i];
+                in[x].removeAt(in[x].indexOf(v));
+                deletedNeighbours[x]++;
+            }
+            for (int i = 0; i < inbound.size; i++) {
+                int u = inbound.vertexes[i];
+                out[u].removeAt(out[u].indexOf(v));
+                deletedNeighbours[u]++;
+            }
+            // all remaining neighbours will be contracted later, so these edges go up
+            up[v] = outbound;
+            down[v] = inbound;
+            out[v] = null;
+            in[v] = null;
+            contracted[v] = true;
+        }
+
+        // counts (and adds if not simulate) shortcuts needed to contract v
+        int shortcuts(int v, boolean simulate) {
+            EdgeList outbound = out[v];
+            EdgeList inbound = in[v];
+            int count = 0;
+            for (int i = 0; i < inbound.size; i++) {
+                int u = inbound.vertexes[i];
+                long toV = inbound.weights[i];
+                long limit = -1;
+                int targets = 0;
+                stamp++;
+                for (int j = 0; j < outbound.size; j++) {
+                    if (outbound.vertexes[j] != u) {
+                        limit = Math.max(limit, toV + outbound.weights[j]);
+                        marks[outbound.vertexes[j]] = stamp;
+                        targets++;
+                    }
+                }
+                if (targets == 0)
+                    continue;
+                witnessSearch(u, v, limit, targets, simulate ? SIMULATION_SETTLE_LIMIT : CONTRACTION_SETTLE_LIMIT);
+                for (int j = 0; j < outbound.size; j++) {
+                    int x = outbound.vertexes[j];
+                    long viaV = toV + outbound.weights[j];
+                    if (x == u || witnessDist[x] <= viaV)
+                        continue;
+                    count++;
+                    if (!simulate)
+                        addShortcut(u, x, viaV, v);
+                }
+                resetWitness();
+            }
+            return count;
+        }
+
+        // Dijkstra from u in remaining graph without v, it stops when all marked targets are settled
+        // or at distance limit or settle limit
+        void witnessSearch(int u, int v, long limit, int targets, int maxSettled) {
+            witnessDist[u] = 0;
+            touch(u);
+            witnessHeap.offer(u, 0);
+            int settled = 0;
+            while (!witnessHeap.isEmpty()) {
+                int vertex = witnessHeap.poll();
+                long distance = witnessDist[vertex];
+                if (distance > limit || ++settled > maxSettled)
+                    break;
+                if (marks[vertex] == stamp && --targets == 0)
+                    break;
+                EdgeList edges = out[vertex];
+                for (int i = 0; i < edges.size; i++) {
+                    int target = edges.vertexes[i];
+                    if (target == v)
+                        continue;
+                    long alt = distance + edges.weights[i];
+                    if (alt < witnessDist[target]) {
+                        if (witnessDist[target] == Long.MAX_VALUE)
+                            touch(target);
+                        witnessDist[target] = alt;
+                        witnessHeap.offer(target, alt);
+                    }
+                }
+            }
+        }
+
+        void touch(int vertex) {
+            if (touchedSize == touched.length)
+                touched = Arrays.copyOf(touched, touchedSize * 2);
+            touched[touchedSize++] = vertex;
+        }
+
+        void resetWitness() {
+            for (int i = 0; i < touchedSize; i++)
+                witnessDist[touched[i]] = Long.MAX_VALUE;
+            touchedSize = 0;
+            witnessHeap.clear();
+        }
+
+        void addShortcut(int u, int x, long weight, int middle) {
+            int i = out[u].indexOf(x);
+            if (i == -1) {
+                out[u].add(x, weight, middle);
+                in[x].add(u, weight, middle);
+            } else if (weight < out[u].weights[i]) {
+                out[u].weights[i] = weight;
+                out[u].middles[i] = middle;
+                int j = in[x].indexOf(u);
+                in[x].weights[j] = weight;
+                in[x].middles[j] = middle;
+            }
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package takahawk.graphsintouch.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import takahawk.takalibrary.IntList;
+import takahawk.takalibrary.Parallel;
+
+/**
+ * Parallel single-source shortest paths by delta-stepping.
+ * Tentative distances are split into buckets of width delta. Vertexes of the lowest non-empty bucket are
+ * processed together: light edges (not longer than delta) are relaxed in rounds while they put vertexes back
+ * into the same bucket, then heavy edges of all vertexes settled in bucket are relaxed once, as they can't
+ * lead back into it. Every round relaxes edges of its vertexes in parallel, distances are decreased by atomic
+ * compare-and-set, so the order of relaxations doesn't matter.
+ * Used by {@link Algorithms#shortestPathTreeParallel(Graph, int, ExecutorService, int)}
+ * @author takahawk
+ */
+class DeltaStepping {
+    // smaller rounds are relaxed on the calling thread, tasks would cost more than they save
+    private static final int PARALLEL_THRESHOLD = 256;
+    private static final int MAX_BUCKETS = 1 << 16;
+
+    private final FrozenGraph graph;
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final long delta;
+    private final AtomicLongArray dist;
+    // buckets are cyclic: all tentative distances are less than (current bucket + 1) * delta + max weight
+    private final IntList[] buckets;
+    private int pending;
+
+    /**
+     * @param delta width of bucket
+     */
+    DeltaStepping(FrozenGraph graph, ExecutorService executor, int parallelism, long delta) {
+        int maxWeight = 0;
+        for (int weight : graph.weights) {
+            if (weight < 0)
+                throw new IllegalArgumentException("Delta-stepping requires non-negative weights");
+            maxWeight = Math.max(maxWeight, weight);
+        }
+        this.graph = graph;
+        this.executor = executor;
+        this.parallelism = parallelism;
+        // bucket count is bounded in case delta is tuned by statistics of another graph version
+        this.delta = Math.max(delta, maxWeight / MAX_BUCKETS + 1);
+        dist = new AtomicLongArray(graph.vertexCount());
+        buckets = new IntList[(int) (maxWeight / this.delta) + 2];
+        for (int i = 0; i < buckets.length; i++)
+            buckets[i] = new IntList();
+    }
+
+    /**
+     * Returns delta tuned by graph statistics: max weight divided by average degree.
+     * Then vertex has about one light edge, so light rounds don't relax much in vain
+     * (as it happens with big delta), and there are not much near-empty buckets (as with small delta)
+     * @param statistics graph statistics
+     * @return delta
+     */
+    static long delta(GraphStatistics statistics) {
+        if (statistics.vertexCount() == 0)
+            return 1;
+        long degree = Math.max(1, 2L * statistics.edgeCount() / statistics.vertexCount());
+        return Math.max(1, statistics.maxWeight() / degree);
+    }
+
+    /**
+     * Finds distances and predecessors from source
+     * @param from dense index of source
+     * @param prev array to be filled with predecessors (-1 - no predecessor)
+     * @return distances (Long.MAX_VALUE - vertex is not reached)
+     */
+    long[] run(int from, int[] prev) {
+        int n = graph.vertexCount();
+        for (int v = 0; v < n; v++)
+            dist.set(v, Long.MAX_VALUE);
+        dist.set(from, 0);
+        enqueue(from, 0);
+
+        // marks[v] == stamp if v is already taken into current round, settled[v] == current bucket + 1 if v
+        // is already in list of vertexes settled in it
+        int[] marks = new int[n];
+        long[] settled = new long[n];
+        int stamp = 0;
+        IntList frontier = new IntList();
+        IntList bucketVertexes = new IntList();
+        long current = 0;
+        while (pending > 0) {
+            while (buckets[(int) (current % buckets.length)].isEmpty())
+                current++;
+            IntList bucket = buckets[(int) (current % buckets.length)];
+            bucketVertexes.clear();
+            while (!bucket.isEmpty()) {
+                stamp++;
+                frontier.clear();
+                // bucket has stale entries of vertexes that moved to lower buckets and duplicates
+                for (int i = 0; i < bucket.size(); i++) {
+                    int vertex = bucket.get(i);
+                    if (dist.get(vertex) / delta == current && marks[vertex] != stamp) {
+                        marks[vertex] = stamp;
+                        frontier.add(vertex);
+                        if (settled[vertex] != current + 1) {
+                            settled[vertex] = current + 1;
+                            bucketVertexes.add(vertex);
+                        }
+                    }
+                }
+                pending -= bucket.size();
+                bucket.clear();
+                relax(frontier, true);
+            }
+            relax(bucketVertexes, false);
+            current++;
+        }
+
+        long[] result = new long[n];
+        for (int v = 0; v < n; v++)
+            result[v] = dist.get(v);
+        predecessors(from, result, prev);
+        return result;
+    }
+
+    private void enqueue(int vertex, long distance) {
+        buckets[(int) (distance / delta % buckets.length)].add(vertex);
+        pending++;
+    }
+
+    // relaxes light or heavy edges of vertexes and puts improved vertexes into their buckets
+    private void relax(IntList vertexes, boolean light) {
+        int size = vertexes.size();
+        if (size < PARALLEL_THRESHOLD || parallelism == 1) {
+            enqueueAll(relax(vertexes, 0, size, light));
+            return;
+        }
+        List<Callable<IntList>> tasks = new ArrayList<>();
+        int chunk = (size + parallelism - 1) / parallelism;
+        for (int begin = 0; begin < size; begin += chunk) {
+            final int first = begin;
+            final int last = Math.min(size, begin + chunk);
+            final IntList chunkVertexes = vertexes;
+            final boolean lightEdges = light;
+            tasks.add(new Callable<IntList>() {
+                @Override
+                public IntList call() {
+                    return relax(chunkVertexes, first, last, lightEdges);
+                }
+            });
+        }
+        for (IntList improved : Parallel.invokeAll(executor, tasks))
+            enqueueAll(improved);
+    }
+
+    private void enqueueAll(IntList improved) {
+        for (int i = 0; i < improved.size(); i++) {
+            int vertex = improved.get(i);
+            enqueue(vertex, dist.get(vertex));
+        }
+    }
+
+    private IntList relax(IntList vertexes, int first, int last, boolean light) {
+        IntList improved = new IntList();
+        for (int i = first; i < last; i++) {
+            int vertex = vertexes.get(i);
+            long distance = dist.get(vertex);
+            for (int slot = graph.offsets[vertex]; slot < graph.offsets[vertex + 1]; slot++) {
+                int weight = graph.weights[slot];
+                if ((weight <= delta) != light)
+                    continue;
+                int target = graph.targets[slot];
+                long alt = distance + weight;
+                // atomic min: retry while our distance is still less than the current one
+                long old = dist.get(target);
+                while (alt < old) {
+                    if (dist.compareAndSet(target, old, alt)) {
+                        improved.add(target);
+                        break;
+                    }
+                    old = dist.get(target);
+                }
+            }
+        }
+        return improved;
+    }
+
+    /*
+        Predecessor of vertex is any vertex with tight edge to it (its distance plus weight is distance of vertex).
+        Vertexes with strictly shorter distance are found in parallel, they can't form a cycle. Zero weight edges
+        can, so vertexes that have only zero weight tight edges get predecessors by search over tight edges
+     */
+    private void predecessors(final int from, final long[] dist, final int[] prev) {
+        final int n = dist.length;
+        Arrays.fill(prev, -1);
+        if (n < PARALLEL_THRESHOLD || parallelism == 1) {
+            strictPredecessors(from, dist, prev, 0, n);
+        } else {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            int chunk = (n + parallelism - 1) / parallelism;
+            for (int begin = 0; begin < n; begin += chunk) {
+                final int first = begin;
+                final int last = Math.min(n, begin + chunk);
+                tasks.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        strictPredecessors(from, dist, prev, first, last);
+                        return null;
+                    }
+                });
+            }
+            Parallel.invokeAll(executor, tasks);
+        }
+
+        boolean complete = true;
+        for (int v = 0; v < n && complete; v++)
+            if (v != from && dist[v] != Long.MAX_VALUE && prev[v] == -1)
+                complete = false;
+        if (complete)
+            return;
+        boolean[] visited = new boolean[n];
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        visited[from] = true;
+        queue[tail++] = from;
+        while (head < tail) {
+            int vertex = queue[head++];
+            for (int slot = graph.offsets[vertex]; slot < graph.offsets[vertex + 1]; slot++) {
+                int target = graph.targets[slot];
+                if (!visited[target] && dist[vertex] + graph.weights[slot] == dist[target]) {
+                    visited[target] = true;
+                    if (prev[target] == -1)
+                        prev[target] = vertex;
+                    queue[tail++] = target;
+                }
+            }
+        }
+    }
+
+    private void strictPredecessors(int from, long[] dist, int[] prev, int first, int last) {
+        for (int v = first; v < last; v++) {
+            if (v == from || dist[v] == Long.MAX_VALUE)
+                continue;
+            for (int slot = graph.inOffsets[v]; slot < graph.inOffsets[v + 1]; slot++) {
+                long distance = dist[graph.sources[slot]];
+                if (distance < dist[v] && distance + graph.inWeights[slot] == dist[v]) {
+                    prev[v] = graph.sources[slot];
+                    break;
+                }
+            }
+        }
+    }
+}
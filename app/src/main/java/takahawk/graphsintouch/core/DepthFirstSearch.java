@@ -0,0 +1,164 @@
+package takahawk.graphsintouch.core;
+
+import java.util.Arrays;
+
+/**
+ * Iterative depth-first search over a graph snapshot, base for algorithms like topological sort,
+ * strongly connected components and bridges.
+ * Stack holds pairs (vertex, cursor): cursor is the slot of the next edge of vertex to be examined, so every
+ * edge is looked at once and nothing is allocated during search. Visited set is a bitset.
+ * Results are indexed by dense vertex index of {@link #graph()}: parent in DFS forest, order of discovery and
+ * finishing, and timestamps. Discovery and finishing share one clock, so pre[v] < pre[u] < post[u] < post[v]
+ * if and only if u is a descendant of v.
+ * Several searches from different roots can be done by one object, they make a DFS forest
+ * @author takahawk
+ */
+public class DepthFirstSearch {
+    private final FrozenGraph graph;
+    private final int[] offsets;
+    private final int[] targets;
+    private final long[] visited;
+    private final int[] parents;
+    private final int[] pre;
+    private final int[] post;
+    private final int[] discoveryOrder;
+    private final int[] finishOrder;
+    private int discovered;
+    private int finished;
+    private int clock;
+    // pairs (vertex, cursor)
+    private int[] stack = new int[64];
+
+    /**
+     * Creates search over outbound edges of graph
+     * @param graph graph snapshot
+     */
+    public DepthFirstSearch(FrozenGraph graph) {
+        this(graph, false);
+    }
+
+    /**
+     * Creates search
+     * @param graph graph snapshot
+     * @param reverse true - search goes over inbound edges (graph with reversed edges), false - over outbound ones
+     */
+    public DepthFirstSearch(FrozenGraph graph, boolean reverse) {
+        this.graph = graph;
+        offsets = reverse ? graph.inOffsets : graph.offsets;
+        targets = reverse ? graph.sources : graph.targets;
+        int n = graph.vertexCount();
+        visited = new long[(n + 63) >>> 6];
+        parents = new int[n];
+        pre = new int[n];
+        post = new int[n];
+        Arrays.fill(parents, -1);
+        Arrays.fill(pre, -1);
+        Arrays.fill(post, -1);
+        discoveryOrder = new int[n];
+        finishOrder = new int[n];
+    }
+
+    /**
+     * Searches from root, vertexes visited by previous searches are skipped
+     * @param root dense index of root
+     * @return count of vertexes discovered by this search
+     */
+    public int search(int root) {
+        if (isVisited(root))
+            return 0;
+        int start = discovered;
+        int top = 0;
+        discover(root, -1);
+        stack[top++] = root;
+        stack[top++] = offsets[root];
+        while (top > 0) {
+            int vertex = stack[top - 2];
+            int slot = stack[top - 1];
+            int end = offsets[vertex + 1];
+            while (slot < end && isVisited(targets[slot]))
+                slot++;
+            if (slot == end) {
+                post[vertex] = clock++;
+                finishOrder[finished++] = vertex;
+                top -= 2;
+                continue;
+            }
+            stack[top - 1] = slot + 1;
+            int target = targets[slot];
+            discover(target, vertex);
+            if (top == stack.length)
+                stack = Arrays.copyOf(stack, top * 2);
+            stack[top++] = target;
+            stack[top++] = offsets[target];
+        }
+        return discovered - start;
+    }
+
+    /**
+     * Searches from every vertex that is not visited yet, in order of dense indexes
+     */
+    public void searchAll() {
+        for (int v = 0; v < parents.length; v++)
+            search(v);
+    }
+
+    private void discover(int vertex, int parent) {
+        visited[vertex >>> 6] |= 1L << vertex;
+        parents[vertex] = parent;
+        pre[vertex] = clock++;
+        discoveryOrder[discovered++] = vertex;
+    }
+
+    public FrozenGraph graph() {
+        return graph;
+    }
+
+    public boolean isVisited(int vertex) {
+        return (visited[vertex >>> 6] & (1L << vertex)) != 0;
+    }
+
+    /**
+     * Returns parents in DFS forest
+     * @return parent indexes, -1 - root or not visited vertex
+     */
+    public int[] parents() {
+        return parents;
+    }
+
+    /**
+     * Returns discovery timestamps
+     * @return timestamps, -1 - not visited vertex
+     */
+    public int[] preOrder() {
+        return pre;
+    }
+
+    /**
+     * Returns finishing timestamps, vertex is finished when all its descendants are finished
+     * @return timestamps, -1 - not finished vertex
+     */
+    public int[] postOrder() {
+        return post;
+    }
+
+    /**
+     * Returns vertexes in order of discovery, only the first discoveredCount() elements are filled
+     * @return vertex indexes
+     */
+    public int[] discoveryOrder() {
+        return discoveryOrder;
+    }
+
+    /**
+     * Returns vertexes in order of finishing (reversed it is topological order of acyclic graph),
+     * only the first discoveredCount() elements are filled
+     * @return vertex indexes
+     */
+    public int[] finishOrder() {
+        return finishOrder;
+    }
+
+    public int discoveredCount() {
+        return discovered;
+    }
+}
@@ -0,0 +1,93 @@
+package takahawk.graphsintouch.core;
+
+import takahawk.takalibrary.IntIntHashMap;
+
+/**
+ * A* heuristic for graphs laid out on a plane: straight-line distance between vertexes.
+ * Distance is multiplied by the minimal ratio of edge weight to edge length over all edges, so for every edge
+ * its weight is not less than scaled length, and by triangle inequality scaled distance never exceeds
+ * length of any path. If some edge has negative weight or a vertex without coordinates, heuristic is zero.
+ * Heuristic is built for one graph version, it takes O(V + E) time
+ * @author takahawk
+ */
+public class EuclideanHeuristic
+    implements Heuristic {
+    private final IntIntHashMap positions;
+    private final float[] x;
+    private final float[] y;
+    private final double scale;
+    private final long version;
+
+    /**
+     * Creates heuristic for given vertex coordinates
+     * @param graph graph (usually read-only snapshot)
+     * @param numbers vertex numbers
+     * @param x horizontal coordinates of vertexes in order of numbers
+     * @param y vertical coordinates of vertexes in order of numbers
+     */
+    public EuclideanHeuristic(Graph graph, int[] numbers, float[] x, float[] y) {
+        if (numbers.length != x.length || numbers.length != y.length)
+            throw new IllegalArgumentException("Coordinate arrays have different lengths");
+        this.x = x;
+        this.y = y;
+        version = graph.version();
+        positions = new IntIntHashMap(numbers.length);
+        for (int i = 0; i < numbers.length; i++)
+            positions.put(numbers[i], i);
+
+        FrozenGraph frozen = graph.freeze();
+        double minRatio = Double.POSITIVE_INFINITY;
+        for (int e = 0; e < frozen.edgeCount(); e++) {
+            int weight = frozen.edgeWeight[e];
+            if (weight < 0) {
+                minRatio = 0;
+                break;
+            }
+            int out = positions.get(frozen.numbers[frozen.edgeOut[e]], -1);
+            int in = positions.get(frozen.numbers[frozen.edgeIn[e]], -1);
+            // edge of vertex without coordinates gives no bound, so distances can't be used at all
+            if (out == -1 || in == -1) {
+                minRatio = 0;
+                break;
+            }
+            double length = distance(out, in);
+            if (length > 0)
+                minRatio = Math.min(minRatio, weight / length);
+        }
+        scale = Double.isInfinite(minRatio) ? 0 : minRatio;
+    }
+
+    /**
+     * Returns version of graph heuristic is built for
+     * @return graph version
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Returns multiplier of straight-line distance
+     * @return scale of heuristic
+     */
+    public double scale() {
+        return scale;
+    }
+
+    private double distance(int first, int second) {
+        double dX = x[first] - x[second];
+        double dY = y[first] - y[second];
+        return Math.sqrt(dX * dX + dY * dY);
+    }
+
+    @Override
+    public long estimate(int vertex, int destination) {
+        if (scale == 0)
+            return 0;
+        int from = positions.get(vertex, -1);
+        int to = positions.get(destination, -1);
+        if (from == -1 || to == -1)
+            return 0;
+        // rounding down keeps estimate not greater than integer path length
+        return (long) Math.floor(scale * distance(from, to));
+    }
+}
@@ -0,0 +1,120 @@
+package takahawk.graphsintouch.core;
+
+import java.util.Arrays;
+
+import takahawk.takalibrary.IntList;
+import takahawk.takalibrary.UnionFind;
+
+/**
+ * Filter-Kruskal algorithm of minimum spanning forest.
+ * Edges are partitioned around pivot as in quicksort, light part is processed first. Before heavy part
+ * is processed, edges that are already inside one component are filtered out of it, so on dense graphs most
+ * heavy edges are dropped by one union-find check each and never sorted. Small parts are sorted and added
+ * as in Kruskal's algorithm. Parts are kept on explicit stack, so there is no deep recursion.
+ * Edges are ordered by weight and then by index, so forest is the same as the one of
+ * {@link Algorithms#minForestKruskal(Graph, java.util.concurrent.ExecutorService, int)}.
+ * Used by {@link Algorithms#minForestFilterKruskal(Graph)}
+ * @author takahawk
+ */
+class FilterKruskal {
+    // smaller parts are sorted at once
+    private static final int SORT_THRESHOLD = 1024;
+
+    private final FrozenGraph graph;
+    private final UnionFind sets;
+    // edge indexes, parts of array are partitioned in place
+    private final int[] edges;
+    private final long[] keys;
+
+    FilterKruskal(FrozenGraph graph) {
+        this.graph = graph;
+        sets = new UnionFind(graph.vertexCount());
+        edges = new int[graph.edgeCount()];
+        for (int e = 0; e < edges.length; e++)
+            edges[e] = e;
+        keys = new long[Math.min(edges.length, SORT_THRESHOLD)];
+    }
+
+    /**
+     * Finds minimum spanning forest
+     * @return indexes of forest edges in edge arrays of graph
+     */
+    IntList run() {
+        IntList forest = new IntList();
+        // triples (begin, end, 1 if part has to be filtered)
+        IntList stack = new IntList();
+        push(stack, 0, edges.length, false);
+        while (!stack.isEmpty() && sets.count() > 1) {
+            int top = stack.size() - 3;
+            int begin = stack.get(top);
+            int end = stack.get(top + 1);
+            boolean filter = stack.get(top + 2) == 1;
+            stack.truncate(top);
+            if (filter)
+                end = filter(begin, end);
+            if (end - begin <= SORT_THRESHOLD) {
+                kruskal(begin, end, forest);
+                continue;
+            }
+            int middle = partition(begin, end);
+            // light part is on top, so it is processed before heavy one
+            push(stack, middle, end, true);
+            push(stack, begin, middle, false);
+        }
+        return forest;
+    }
+
+    private static void push(IntList stack, int begin, int end, boolean filter) {
+        stack.add(begin);
+        stack.add(end);
+        stack.add(filter ? 1 : 0);
+    }
+
+    // edge index is non-negative, so long order is order of weight and then of index
+    private long key(int e) {
+        return ((long) graph.edgeWeight[e] << 32) | e;
+    }
+
+    // moves edges that join different components to the beginning of part, returns new end of part
+    private int filter(int begin, int end) {
+        int kept = begin;
+        for (int i = begin; i < end; i++) {
+            int e = edges[i];
+            if (sets.find(graph.edgeOut[e]) != sets.find(graph.edgeIn[e]))
+                edges[kept++] = e;
+        }
+        return kept;
+    }
+
+    // partitions part around median of three keys, returns beginning of heavy part (both parts are not empty)
+    private int partition(int begin, int end) {
+        long a = key(edges[begin]);
+        long b = key(edges[(begin + end) >>> 1]);
+        long c = key(edges[end - 1]);
+        long pivot = Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+        int i = begin;
+        int j = end - 1;
+        while (i <= j) {
+            if (key(edges[i]) <= pivot) {
+                i++;
+            } else {
+                int temp = edges[i];
+                edges[i] = edges[j];
+                edges[j--] = temp;
+            }
+        }
+        return i;
+    }
+
+    private void kruskal(int begin, int end, IntList forest) {
+        int size = end - begin;
+        for (int i = 0; i < size; i++)
+            keys[i] = key(edges[begin + i]);
+        Arrays.sort(keys, 0, size);
+        for (int i = 0; i < size && sets.count() > 1; i++) {
+            int e = (int) keys[i];
+            if (sets.union(graph.edgeOut[e], graph.edgeIn[e]))
+                forest.add(e);
+        }
+    }
+}
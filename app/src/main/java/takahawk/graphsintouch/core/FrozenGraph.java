@@ -0,0 +1,187 @@
+package takahawk.graphsintouch.core;
+
+import takahawk.takalibrary.IntIntHashMap;
+
+/**
+ * Immutable snapshot of a graph in compressed sparse row (CSR) form.
+ * Vertexes are renumbered with dense indexes 0..n-1, adjacency is stored in flat int arrays,
+ * so read-only algorithms can work without map lookups, boxing and per-edge objects.
+ * Snapshot is created with {@link Graph#freeze()}.
+ * @author takahawk
+ */
+public class FrozenGraph {
+    /*
+        Forward adjacency of vertex v occupies slots offsets[v]..offsets[v + 1] - 1 of targets/weights.
+        For directed graph it holds outbound edges, for undirected - outbound and then inbound edges
+        (the same order as Graph.getAdjacentEdges returns).
+        Backward adjacency holds inbound edges of directed graph. For undirected graph it is the same
+        arrays as forward one.
+        Also every edge is stored once in edgeOut/edgeIn/edgeWeight arrays (the order of Graph.edges()),
+        edges are grouped by outbound vertex: edges of v are edgeOffsets[v]..edgeOffsets[v + 1] - 1.
+     */
+    final boolean directed;
+    final int[] numbers;
+    final IntIntHashMap indexes;
+
+    final int[] offsets;
+    final int[] targets;
+    final int[] weights;
+
+    final int[] inOffsets;
+    final int[] sources;
+    final int[] inWeights;
+
+    final int[] edgeOut;
+    final int[] edgeIn;
+    final int[] edgeWeight;
+    final int[] edgeOffsets;
+
+    FrozenGraph(boolean directed, int[] numbers, IntIntHashMap indexes,
+                int[] offsets, int[] targets, int[] weights,
+                int[] inOffsets, int[] sources, int[] inWeights,
+                int[] edgeOut, int[] edgeIn, int[] edgeWeight, int[] edgeOffsets) {
+        this.directed = directed;
+        this.numbers = numbers;
+        this.indexes = indexes;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.inOffsets = inOffsets;
+        this.sources = sources;
+        this.inWeights = inWeights;
+        this.edgeOut = edgeOut;
+        this.edgeIn = edgeIn;
+        this.edgeWeight = edgeWeight;
+        this.edgeOffsets = edgeOffsets;
+    }
+
+    public boolean isDirected() {
+        return directed;
+    }
+
+    /**
+     * Returns count of vertexes
+     * @return count of vertexes
+     */
+    public int vertexCount() {
+        return numbers.length;
+    }
+
+    /**
+     * Returns count of edges
+     * @return count of edges
+     */
+    public int edgeCount() {
+        return edgeOut.length;
+    }
+
+    /**
+     * Returns vertex number for a given dense index
+     * @param index dense index of vertex
+     * @return vertex number
+     */
+    public int number(int index) {
+        return numbers[index];
+    }
+
+    /**
+     * Returns dense index of vertex with a given number
+     * @param number vertex number
+     * @return dense index or -1 if there are no such a vertex
+     */
+    public int indexOf(int number) {
+        return indexes.get(number, -1);
+    }
+
+    /**
+     * Returns first slot of forward adjacency of vertex
+     * @param index dense index of vertex
+     * @return first slot
+     */
+    public int begin(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * Returns slot after the last one of forward adjacency of vertex
+     * @param index dense index of vertex
+     * @return end slot (exclusive)
+     */
+    public int end(int index) {
+        return offsets[index + 1];
+    }
+
+    public int target(int slot) {
+        return targets[slot];
+    }
+
+    public int weight(int slot) {
+        return weights[slot];
+    }
+
+    /**
+     * Returns first slot of backward adjacency of vertex
+     * @param index dense index of vertex
+     * @return first slot
+     */
+    public int inBegin(int index) {
+        return inOffsets[index];
+    }
+
+    /**
+     * Returns slot after the last one of backward adjacency of vertex
+     * @param index dense index of vertex
+     * @return end slot (exclusive)
+     */
+    public int inEnd(int index) {
+        return inOffsets[index + 1];
+    }
+
+    public int source(int slot) {
+        return sources[slot];
+    }
+
+    public int inWeight(int slot) {
+        return inWeights[slot];
+    }
+
+    /**
+     * Passes every edge adjacent to vertex to visitor in the same way as {@link Graph#forEachEdge(int, IntEdgeConsumer)}
+     * @param vertex vertex number
+     * @param consumer visitor receiving outbound vertex, inbound vertex and weight of every edge
+     */
+    public void forEachEdge(int vertex, IntEdgeConsumer consumer) {
+        int v = indexOf(vertex);
+        if (v == -1)
+            return;
+        // forward adjacency of undirected graph starts with outbound edges
+        int outEnd = offsets[v] + edgeOffsets[v + 1] - edgeOffsets[v];
+        for (int slot = offsets[v]; slot < offsets[v + 1]; slot++) {
+            if (slot < outEnd)
+                consumer.accept(vertex, numbers[targets[slot]], weights[slot]);
+            else
+                consumer.accept(numbers[targets[slot]], vertex, weights[slot]);
+        }
+    }
+
+    /**
+     * Passes every edge of graph to visitor once
+     * @param consumer visitor receiving outbound vertex, inbound vertex and weight of every edge
+     */
+    public void forEachEdge(IntEdgeConsumer consumer) {
+        for (int e = 0; e < edgeOut.length; e++)
+            consumer.accept(numbers[edgeOut[e]], numbers[edgeIn[e]], edgeWeight[e]);
+    }
+
+    public int edgeOut(int edge) {
+        return edgeOut[edge];
+    }
+
+    public int edgeIn(int edge) {
+        return edgeIn[edge];
+    }
+
+    public int edgeWeight(int edge) {
+        return edgeWeight[edge];
+    }
+}
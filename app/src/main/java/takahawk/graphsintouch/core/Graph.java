@@ -3,7 +3,7 @@ package takahawk.graphsintouch.core;
 import java.io.Serializable;
 import java.util.*;
 
-import takahawk.takalibrary.DisjointSetForest;
+import takahawk.takalibrary.IntIntHashMap;
 /**
  * Graph is a representation of a set of objects where some pairs of objects are connected by links.
  * @author takahawk
@@ -16,10 +16,66 @@ public class Graph
         Such a construction uses 2-time more memory, but allows to perform remove vertex and change vertex number
         operations much faster
         Also it insignificantly faster at work with undirected graph
+
+        Vertexes have dense indexes 0..n-1: vertex number is mapped to index by open addressing int map, and
+        index is mapped back by numbers array. Removed vertex is replaced by the last one, so indexes stay dense.
+        Both lists of vertex are stored in primitive form: growable int arrays of neighbour indexes and weights.
+        Numbers are used only at API boundary, so change of vertex number is just an update of the map.
+        There are no parallel edges, so edge is identified by its vertexes, and lists of high-degree vertexes
+        are indexed by neighbour: edge lookup takes constant time regardless of degree.
+        Every entry knows position of its twin in the opposite list, removed entry is replaced by the last one
+        of list, so edge removal is O(1) and vertex removal is O(degree).
+
+        Storage is copy-on-write: snapshot() shares all arrays and lists with a read-only graph in O(1).
+        After that graph copies its top-level arrays on the first modification, and every list - on the first
+        modification of this list (list is shared if its epoch is older than epoch of graph), so snapshot
+        never sees changes and can be read from another thread without locking.
+
+        Counters and extremes of graph (edge count, max vertex number, degree histogram, weights) are kept
+        in statistics object updated on every modification, so they are never counted by scanning the graph.
+
+        Small dense graph is stored in matrix instead of lists: packed bitset matrix of outbound edges (row of
+        vertex is a run of long words with bits set for vertexes it has edges to), its transpose for inbound
+        edges and int matrix of weights. Adjacency test is a single bit test, neighbourhoods are compared by
+        word-wise AND, and memory doesn't depend on edge count: about 4.25 bytes per cell against at least
+        24 bytes per edge in lists. Graph switches between lists and matrix automatically when density
+        crosses thresholds, both keep edges in direction they were added, so switch is not visible outside.
      */
-    private Map<Integer, List<Edge> > adjOutList = new HashMap<>();
-    private Map<Integer, List<Edge> > adjInList = new HashMap<>();
+    private IntIntHashMap indexes = new IntIntHashMap();
+    private int[] numbers = new int[0];
+    private Adjacency[] outList = new Adjacency[0];
+    private Adjacency[] inList = new Adjacency[0];
+    private int count;
     private boolean directed;
+    // incremented on every modification
+    private long version;
+    // epoch of lists that can be modified in place, older lists are shared with snapshots
+    private int epoch;
+    // top-level arrays and map are shared with a snapshot
+    private boolean shared;
+    private boolean readOnly;
+    // cached CSR snapshot, dropped on every modification
+    private transient FrozenGraph frozen;
+    private GraphStatistics statistics = new GraphStatistics(this);
+    // matrix storage, outBits is null if graph is stored in lists (and lists are null if it is not):
+    // row of vertex has words long words, bit u of row v is set in outBits and bit v of row u in inBits
+    // if there is edge v -> u, and weight of this edge is weights[v * capacity + u]
+    private long[] outBits;
+    private long[] inBits;
+    private int[] weights;
+    private int capacity;
+    private int words;
+
+    // changes recorded for listeners since the last publication
+    private transient List<GraphListener> listeners;
+    private transient int[] changes;
+    private transient int changesSize;
+    private transient long changesVersion;
+    private transient int batchDepth;
+
+    private static final int MATRIX_MAX_VERTEXES = 1024;
+    // matrix is built if edges fill at least 1/MATRIX_DENSITY of it and dropped below half of that
+    private static final int MATRIX_DENSITY = 4;
 
     public Graph() {
         directed = false;
@@ -33,7 +89,294 @@ public class Graph
         return directed;
     }
 
-    public void setDirected(boolean directed) { this.directed = directed; }
+    /**
+     * Switches graph between directed and undirected. Edges are kept as they are, so counter edges of
+     * directed graph stay two edges of undirected one: they are removed one by one, and vertexes are adjacent
+     * while any of them remains
+     * @param directed true - if graph is directed, false - if undirected
+     */
+    public void setDirected(boolean directed) {
+        if (readOnly)
+            throw new UnsupportedOperationException("Graph snapshot is read-only");
+        this.directed = directed;
+        record(GraphChanges.DIRECTION_CHANGED, directed ? 1 : 0, 0, 0);
+        modified();
+    }
+
+    /**
+     * Returns version of graph, that is changed on every modification
+     * @return graph version
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Returns true if graph is a read-only snapshot
+     * @return true - if graph can't be modified, false - otherwise
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Returns read-only snapshot of current graph state. Snapshot is taken in O(1) time: it shares storage
+     * with graph, and graph copies shared parts on modification. So snapshot can be safely read from another
+     * thread (e.g. by background algorithm) while this graph is being modified
+     * @return read-only graph with the same vertexes, edges and version as this graph has now
+     */
+    public Graph snapshot() {
+        if (readOnly)
+            return this;
+        shared = true;
+        epoch++;
+        Graph snapshot = new Graph(directed);
+        snapshot.indexes = indexes;
+        snapshot.numbers = numbers;
+        snapshot.outList = outList;
+        snapshot.inList = inList;
+        snapshot.outBits = outBits;
+        snapshot.inBits = inBits;
+        snapshot.weights = weights;
+        snapshot.capacity = capacity;
+        snapshot.words = words;
+        snapshot.count = count;
+        snapshot.version = version;
+        snapshot.epoch = epoch;
+        snapshot.readOnly = true;
+        snapshot.frozen = frozen;
+        snapshot.statistics = new GraphStatistics(statistics, snapshot);
+        return snapshot;
+    }
+
+    void checkWritable() {
+        if (readOnly)
+            throw new UnsupportedOperationException("Graph snapshot is read-only");
+        if (shared) {
+            indexes = new IntIntHashMap(indexes);
+            numbers = numbers.clone();
+            if (outBits != null) {
+                // matrix is small, so it is copied at once rather than row by row
+                outBits = outBits.clone();
+                inBits = inBits.clone();
+                weights = weights.clone();
+            } else {
+                outList = outList.clone();
+                inList = inList.clone();
+            }
+            shared = false;
+        }
+    }
+
+    void modified() {
+        version++;
+        frozen = null;
+        if (batchDepth == 0)
+            publish();
+    }
+
+    /**
+     * Adds listener that is notified about every modification of graph
+     * @param listener listener
+     */
+    public void addListener(GraphListener listener) {
+        if (listeners == null)
+            listeners = new ArrayList<>();
+        listeners.add(listener);
+    }
+
+    public void removeListener(GraphListener listener) {
+        if (listeners != null)
+            listeners.remove(listener);
+    }
+
+    /**
+     * Starts batch of modifications: listeners are notified once about all changes when batch is ended.
+     * Batches can be nested, changes are published at the end of the outermost one
+     */
+    public void beginBatch() {
+        batchDepth++;
+    }
+
+    /**
+     * Ends batch of modifications started with {@link #beginBatch()}
+     */
+    public void endBatch() {
+        if (batchDepth == 0)
+            throw new IllegalStateException("Batch is not started");
+        if (--batchDepth == 0)
+            publish();
+    }
+
+    // appends change record for listeners, must be called before modified()
+    private void record(int type, int first, int second, int third) {
+        if (listeners == null || listeners.isEmpty())
+            return;
+        if (changes == null)
+            changes = new int[8 * GraphChanges.RECORD_SIZE];
+        else if (changesSize == changes.length)
+            changes = Arrays.copyOf(changes, changesSize * 2);
+        if (changesSize == 0)
+            changesVersion = version;
+        changes[changesSize++] = type;
+        changes[changesSize++] = first;
+        changes[changesSize++] = second;
+        changes[changesSize++] = third;
+    }
+
+    private void publish() {
+        if (changesSize == 0)
+            return;
+        GraphChanges published = new GraphChanges(Arrays.copyOf(changes, changesSize), changesVersion, version);
+        changesSize = 0;
+        // listener can remove itself when notified
+        for (GraphListener listener : listeners.toArray(new GraphListener[listeners.size()]))
+            listener.graphChanged(published);
+    }
+
+    // bookkeeping of edge insertion, called after edge is added to both lists
+    void edgeAdded(int out, int in, int weight) {
+        record(GraphChanges.EDGE_ADDED, numbers[out], numbers[in], weight);
+        statistics.edgeAdded(weight);
+        if (out == in) {
+            statistics.degreeChanged(degree(out) - 2, degree(out));
+        } else {
+            statistics.degreeChanged(degree(out) - 1, degree(out));
+            statistics.degreeChanged(degree(in) - 1, degree(in));
+        }
+        modified();
+    }
+
+    // bookkeeping of edge weight change
+    void edgeWeightChanged(int out, int in, int weight, int newWeight) {
+        record(GraphChanges.EDGE_REWEIGHTED, numbers[out], numbers[in], newWeight);
+        statistics.weightChanged(weight, newWeight);
+        modified();
+    }
+
+    private int degree(int vertex) {
+        if (outBits != null)
+            return bitCount(outBits, vertex) + bitCount(inBits, vertex);
+        return outList[vertex].size + inList[vertex].size;
+    }
+
+    // outbound list of vertex that can be modified in place
+    private Adjacency writableOut(int vertex) {
+        Adjacency list = outList[vertex];
+        if (list.epoch != epoch)
+            outList[vertex] = list = new Adjacency(list, epoch);
+        return list;
+    }
+
+    // inbound list of vertex that can be modified in place
+    private Adjacency writableIn(int vertex) {
+        Adjacency list = inList[vertex];
+        if (list.epoch != epoch)
+            inList[vertex] = list = new Adjacency(list, epoch);
+        return list;
+    }
+
+    private boolean bit(long[] bits, int row, int column) {
+        return (bits[row * words + (column >>> 6)] & (1L << column)) != 0;
+    }
+
+    private void setBit(long[] bits, int row, int column) {
+        bits[row * words + (column >>> 6)] |= 1L << column;
+    }
+
+    private void clearBit(long[] bits, int row, int column) {
+        bits[row * words + (column >>> 6)] &= ~(1L << column);
+    }
+
+    private int bitCount(long[] bits, int row) {
+        int result = 0;
+        for (int i = row * words, end = i + words; i < end; i++)
+            result += Long.bitCount(bits[i]);
+        return result;
+    }
+
+    /**
+     * Returns true if graph is stored in matrix rather than in lists
+     * @return true - if graph is stored in matrix, false - otherwise
+     */
+    boolean storedInMatrix() {
+        return outBits != null;
+    }
+
+    /**
+     * Switches storage to matrix or back to lists if density of graph has crossed threshold.
+     * Called after count of vertexes or edges has changed
+     */
+    void checkMatrix() {
+        long cells = (long) count * count;
+        int edges = statistics.edgeCount();
+        if (outBits == null) {
+            if (count > 0 && count <= MATRIX_MAX_VERTEXES && (long) edges * MATRIX_DENSITY >= cells)
+                toMatrix();
+        } else if (count > MATRIX_MAX_VERTEXES || (long) edges * MATRIX_DENSITY * 2 < cells) {
+            toLists();
+        }
+    }
+
+    private void toMatrix() {
+        resizeMatrix(count);
+        for (int v = 0; v < count; v++) {
+            Adjacency out = outList[v];
+            for (int i = 0; i < out.size; i++) {
+                int u = out.vertexes[i];
+                setBit(outBits, v, u);
+                setBit(inBits, u, v);
+                weights[v * capacity + u] = out.weights[i];
+            }
+        }
+        outList = null;
+        inList = null;
+    }
+
+    private void toLists() {
+        outList = new Adjacency[numbers.length];
+        inList = new Adjacency[numbers.length];
+        for (int v = 0; v < count; v++) {
+            outList[v] = new Adjacency(bitCount(outBits, v), epoch);
+            inList[v] = new Adjacency(bitCount(inBits, v), epoch);
+        }
+        for (int v = 0; v < count; v++) {
+            Adjacency out = outList[v];
+            for (int w = 0; w < words; w++) {
+                for (long word = outBits[v * words + w]; word != 0; word &= word - 1) {
+                    int u = (w << 6) + Long.numberOfTrailingZeros(word);
+                    Adjacency in = inList[u];
+                    out.add(u, weights[v * capacity + u], in.size);
+                    in.add(v, weights[v * capacity + u], out.size - 1);
+                }
+            }
+        }
+        outBits = null;
+        inBits = null;
+        weights = null;
+        capacity = 0;
+        words = 0;
+    }
+
+    // allocates matrix for a given count of vertexes, edges of current matrix (if any) are kept
+    private void resizeMatrix(int capacity) {
+        int words = (capacity + 63) >>> 6;
+        long[] outBits = new long[capacity * words];
+        long[] inBits = new long[capacity * words];
+        int[] weights = new int[capacity * capacity];
+        if (this.outBits != null) {
+            for (int v = 0; v < count; v++) {
+                System.arraycopy(this.outBits, v * this.words, outBits, v * words, this.words);
+                System.arraycopy(this.inBits, v * this.words, inBits, v * words, this.words);
+                System.arraycopy(this.weights, v * this.capacity, weights, v * capacity, count);
+            }
+        }
+        this.outBits = outBits;
+        this.inBits = inBits;
+        this.weights = weights;
+        this.capacity = capacity;
+        this.words = words;
+    }
 
     public class Edge {
         private int in;
@@ -52,12 +395,157 @@ public class Graph
 
     }
 
+    /**
+     * One side of vertex adjacency: indexes of neighbour vertexes and weights of corresponding edges.
+     * Every entry also keeps position of the same edge in the opposite list of neighbour (twin), so edge
+     * can be removed from both lists without searching.
+     * Every neighbour occurs in list at most once. Small lists are scanned linearly, but when list grows above
+     * INDEX_THRESHOLD it gets hash index (neighbour index -> position), so lookup doesn't depend on degree
+     */
+    private static class Adjacency
+        implements Serializable {
+        private static final int[] EMPTY = new int[0];
+        private static final int INDEX_THRESHOLD = 16;
+
+        int[] vertexes = EMPTY;
+        int[] weights = EMPTY;
+        int[] twins = EMPTY;
+        int size;
+        IntIntHashMap index;
+        int epoch;
+
+        Adjacency(int epoch) {
+            this.epoch = epoch;
+        }
+
+        Adjacency(int capacity, int epoch) {
+            this.epoch = epoch;
+            if (capacity > 0) {
+                vertexes = new int[capacity];
+                weights = new int[capacity];
+                twins = new int[capacity];
+            }
+        }
+
+        Adjacency(Adjacency list, int epoch) {
+            this(list.size, epoch);
+            System.arraycopy(list.vertexes, 0, vertexes, 0, list.size);
+            System.arraycopy(list.weights, 0, weights, 0, list.size);
+            System.arraycopy(list.twins, 0, twins, 0, list.size);
+            size = list.size;
+            if (list.index != null)
+                index = new IntIntHashMap(list.index);
+        }
+
+        void add(int vertex, int weight, int twin) {
+            if (size == vertexes.length) {
+                int capacity = Math.max(4, size * 2);
+                vertexes = Arrays.copyOf(vertexes, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+                twins = Arrays.copyOf(twins, capacity);
+            }
+            vertexes[size] = vertex;
+            weights[size] = weight;
+            twins[size] = twin;
+            if (index != null)
+                index.put(vertex, size);
+            size++;
+            if (index == null && size > INDEX_THRESHOLD) {
+                index = new IntIntHashMap(size * 2);
+                for (int i = 0; i < size; i++)
+                    index.put(vertexes[i], i);
+            }
+        }
+
+        int indexOf(int vertex) {
+            if (index != null)
+                return index.get(vertex, -1);
+            for (int i = 0; i < size; i++)
+                if (vertexes[i] == vertex)
+                    return i;
+            return -1;
+        }
+
+        /**
+         * Removes entry moving the last one to its place, so order of list is not preserved.
+         * Twin of moved entry must be updated by caller
+         */
+        void removeAt(int i) {
+            size--;
+            if (index != null)
+                index.remove(vertexes[i]);
+            if (i != size) {
+                vertexes[i] = vertexes[size];
+                weights[i] = weights[size];
+                twins[i] = twins[size];
+                if (index != null)
+                    index.put(vertexes[i], i);
+            }
+            // drop index only well below threshold, so add/remove near it doesn't rebuild index every time
+            if (index != null && size < INDEX_THRESHOLD / 2)
+                index = null;
+        }
+
+        void rename(int i, int newVertex) {
+            if (index != null) {
+                index.remove(vertexes[i]);
+                index.put(newVertex, i);
+            }
+            vertexes[i] = newVertex;
+        }
+
+        void clear() {
+            size = 0;
+            index = null;
+        }
+    }
+
+    /**
+     * Returns dense index of vertex. Indexes are 0..vertexCount() - 1, they are valid until vertex removal
+     * (removed vertex gives its index to the vertex that had the last one), and they are the same as
+     * indexes of snapshot returned by {@link #freeze()}
+     * @param number vertex number
+     * @return index of vertex or -1 if there are no such a vertex
+     */
+    public int indexOf(int number) {
+        return indexes.get(number, -1);
+    }
+
+    /**
+     * Returns number of vertex with a given dense index
+     * @param index vertex index
+     * @return vertex number
+     */
+    public int number(int index) {
+        if (index < 0 || index >= count)
+            throw new IndexOutOfBoundsException("Vertex index: " + index + ", count: " + count);
+        return numbers[index];
+    }
+
+    // removes entry of outbound list and keeps twin of entry moved to its place pointing to it
+    private void removeOutbound(int vertex, int i) {
+        Adjacency list = writableOut(vertex);
+        int last = list.size - 1;
+        if (i != last)
+            writableIn(list.vertexes[last]).twins[list.twins[last]] = i;
+        list.removeAt(i);
+    }
+
+    // removes entry of inbound list and keeps twin of entry moved to its place pointing to it
+    private void removeInbound(int vertex, int i) {
+        Adjacency list = writableIn(vertex);
+        int last = list.size - 1;
+        if (i != last)
+            writableOut(list.vertexes[last]).twins[list.twins[last]] = i;
+        list.removeAt(i);
+    }
+
     /**
      * Return count of vertexes
      * @return count of vertexes
      */
     public int vertexCount() {
-        return adjInList.size();
+        return count;
     }
 
     /**
@@ -65,10 +553,15 @@ public class Graph
      * @return count of edges
      */
     public int edgeCount() {
-        int count = 0;
-        for (Integer key : adjInList.keySet())
-            count += adjInList.get(key).size();
-        return count;
+        return statistics.edgeCount();
+    }
+
+    /**
+     * Returns statistics of graph. Statistics object is updated along with graph
+     * @return graph statistics
+     */
+    public GraphStatistics statistics() {
+        return statistics;
     }
 
     /**
@@ -76,7 +569,41 @@ public class Graph
      * @return set of all numbers of vertexes
      */
     public Set<Integer> vertexes() {
-        return adjInList.keySet();
+        return new AbstractSet<Integer>() {
+            @Override
+            public Iterator<Integer> iterator() {
+                return new Iterator<Integer>() {
+                    int index = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < count;
+                    }
+
+                    @Override
+                    public Integer next() {
+                        if (index >= count)
+                            throw new NoSuchElementException();
+                        return numbers[index++];
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof Integer && hasVertex((Integer) o);
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
     }
 
     /**
@@ -87,9 +614,29 @@ public class Graph
      */
     public List<Edge> getAdjacentEdges(int vertex) {
         List<Edge> result = new ArrayList<>();
-        result.addAll(adjOutList.get(vertex));
-        if (!directed)
-            result.addAll(adjInList.get(vertex));
+        int v = indexOf(vertex);
+        if (outBits != null) {
+            for (int w = 0; w < words; w++)
+                for (long word = outBits[v * words + w]; word != 0; word &= word - 1) {
+                    int u = (w << 6) + Long.numberOfTrailingZeros(word);
+                    result.add(new Edge(vertex, numbers[u], weights[v * capacity + u]));
+                }
+            if (!directed)
+                for (int w = 0; w < words; w++)
+                    for (long word = inBits[v * words + w]; word != 0; word &= word - 1) {
+                        int u = (w << 6) + Long.numberOfTrailingZeros(word);
+                        result.add(new Edge(numbers[u], vertex, weights[u * capacity + v]));
+                    }
+            return result;
+        }
+        Adjacency out = outList[v];
+        for (int i = 0; i < out.size; i++)
+            result.add(new Edge(vertex, numbers[out.vertexes[i]], out.weights[i]));
+        if (!directed) {
+            Adjacency in = inList[v];
+            for (int i = 0; i < in.size; i++)
+                result.add(new Edge(numbers[in.vertexes[i]], vertex, in.weights[i]));
+        }
         return result;
     }
     /**
@@ -98,12 +645,27 @@ public class Graph
      */
     public List<Edge> getAllEdges() {
         List<Edge> result = new ArrayList<>();
-        for (List<Edge> edges : adjOutList.values()) {
-            result.addAll(edges);
+        if (outBits != null) {
+            // edges of undirected graph are listed twice, as outbound and as inbound ones, like in lists
+            for (int pass = directed ? 1 : 0; pass < 2; pass++)
+                for (int v = 0; v < count; v++)
+                    for (int w = 0; w < words; w++)
+                        for (long word = outBits[v * words + w]; word != 0; word &= word - 1) {
+                            int u = (w << 6) + Long.numberOfTrailingZeros(word);
+                            result.add(new Edge(numbers[v], numbers[u], weights[v * capacity + u]));
+                        }
+            return result;
+        }
+        for (int v = 0; v < count; v++) {
+            Adjacency out = outList[v];
+            for (int i = 0; i < out.size; i++)
+                result.add(new Edge(numbers[v], numbers[out.vertexes[i]], out.weights[i]));
         }
         if (!directed)
-            for (List<Edge> edges : adjInList.values()) {
-                result.addAll(edges);
+            for (int v = 0; v < count; v++) {
+                Adjacency in = inList[v];
+                for (int i = 0; i < in.size; i++)
+                    result.add(new Edge(numbers[in.vertexes[i]], numbers[v], in.weights[i]));
             }
         return result;
     }
@@ -114,30 +676,34 @@ public class Graph
      * @return iterable object that iterates through all graph edges
      */
     public Iterable<Graph.Edge> edges() {
+        if (outBits != null)
+            return matrixEdges();
         return new Iterable<Edge>() {
             @Override
             public Iterator<Edge> iterator() {
                 return new Iterator<Edge>() {
-                    Iterator<Integer> mapIterator = adjOutList.keySet().iterator();
-                    List<Edge> list = new ArrayList<>();
-                    int listIndex = -1;
+                    int vertex = -1;
+                    int listIndex = 0;
+                    int listSize = 0;
                     @Override
                     public boolean hasNext() {
-                        if (++listIndex >= list.size()) {
-                            if (mapIterator.hasNext()) {
-                                list = adjOutList.get(mapIterator.next());
-                                listIndex = -1;
-                                return hasNext();
-                            } else {
+                        while (listIndex >= listSize) {
+                            if (++vertex >= count)
                                 return false;
-                            }
+                            listIndex = 0;
+                            listSize = outList[vertex].size;
                         }
                         return true;
                     }
 
                     @Override
                     public Edge next() {
-                        return list.get(listIndex);
+                        if (!hasNext())
+                            throw new NoSuchElementException();
+                        Adjacency out = outList[vertex];
+                        Edge edge = new Edge(numbers[vertex], numbers[out.vertexes[listIndex]], out.weights[listIndex]);
+                        listIndex++;
+                        return edge;
                     }
 
                     @Override
@@ -150,6 +716,46 @@ public class Graph
 
     }
 
+    private Iterable<Graph.Edge> matrixEdges() {
+        return new Iterable<Edge>() {
+            @Override
+            public Iterator<Edge> iterator() {
+                return new Iterator<Edge>() {
+                    int vertex = 0;
+                    int word = -1;
+                    long bits = 0;
+                    @Override
+                    public boolean hasNext() {
+                        while (bits == 0) {
+                            if (++word == words) {
+                                word = 0;
+                                vertex++;
+                            }
+                            if (vertex >= count)
+                                return false;
+                            bits = outBits[vertex * words + word];
+                        }
+                        return true;
+                    }
+
+                    @Override
+                    public Edge next() {
+                        if (!hasNext())
+                            throw new NoSuchElementException();
+                        int in = (word << 6) + Long.numberOfTrailingZeros(bits);
+                        bits &= bits - 1;
+                        return new Edge(numbers[vertex], numbers[in], weights[vertex * capacity + in]);
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
     /**
      * Iterates through edges adjacent to one vertex
      * NOTE: results depends on directed graph or undirected
@@ -157,19 +763,23 @@ public class Graph
      * @return iterable object for iterating through all edges adjacent to specified vertex
      */
     public Iterable<Graph.Edge> edges(final int outbound) {
+        // neighbourhood of matrix-stored vertex is small enough to be listed at once
+        if (outBits != null)
+            return getAdjacentEdges(outbound);
         return new Iterable<Edge>() {
             @Override
             public Iterator<Edge> iterator() {
                 return new Iterator<Edge>() {
+                    final int vertex = indexOf(outbound);
                     boolean iterateInbound = !directed;
-                    Iterator<Graph.Edge> iterator = adjOutList.get(outbound).iterator();
-                    List<Edge> list = new ArrayList<>();
-                    int listIndex = -1;
+                    Adjacency list = outList[vertex];
+                    int listIndex = 0;
                     @Override
                     public boolean hasNext() {
-                        if (!iterator.hasNext()) {
+                        if (listIndex >= list.size) {
                             if (iterateInbound) {
-                                iterator = adjInList.get(outbound).iterator();
+                                list = inList[vertex];
+                                listIndex = 0;
                                 iterateInbound = false;
                                 return hasNext();
                             } else {
@@ -181,7 +791,14 @@ public class Graph
 
                     @Override
                     public Edge next() {
-                        return iterator.next();
+                        if (!hasNext())
+                            throw new NoSuchElementException();
+                        int adjacent = numbers[list.vertexes[listIndex]];
+                        Edge edge = (list == outList[vertex])
+                                ? new Edge(outbound, adjacent, list.weights[listIndex])
+                                : new Edge(adjacent, outbound, list.weights[listIndex]);
+                        listIndex++;
+                        return edge;
                     }
 
                     @Override
@@ -194,24 +811,74 @@ public class Graph
     }
 
     /**
-     * Returns edge reference for a given vertex numbers
-     * @param out outbound vertex number
-     * @param in inbound vertex number
-     * @return reference to edge or null if such an edge doesn't exist's
+     * Passes every edge adjacent to vertex to visitor without allocating edge objects
+     * NOTE: results depends on directed graph or undirected (the same edges as edges(vertex) iterates)
+     * @param vertex vertex number
+     * @param consumer visitor receiving outbound vertex, inbound vertex and weight of every edge
      */
-    private Edge EdgeByNumber(int out, int in) {
-        if (!adjOutList.containsKey(out) || !adjInList.containsKey(in))
-            return null;
-        for (Edge r : adjOutList.get(out))
-            if (r.in == in)
-                return r;
+    public void forEachEdge(int vertex, IntEdgeConsumer consumer) {
+        int v = indexOf(vertex);
+        if (v == -1)
+            return;
+        if (outBits != null) {
+            for (int w = 0; w < words; w++)
+                for (long word = outBits[v * words + w]; word != 0; word &= word - 1) {
+                    int u = (w << 6) + Long.numberOfTrailingZeros(word);
+                    consumer.accept(vertex, numbers[u], weights[v * capacity + u]);
+                }
+            if (!directed)
+                for (int w = 0; w < words; w++)
+                    for (long word = inBits[v * words + w]; word != 0; word &= word - 1) {
+                        int u = (w << 6) + Long.numberOfTrailingZeros(word);
+                        consumer.accept(numbers[u], vertex, weights[u * capacity + v]);
+                    }
+            return;
+        }
+        Adjacency out = outList[v];
+        for (int i = 0; i < out.size; i++)
+            consumer.accept(vertex, numbers[out.vertexes[i]], out.weights[i]);
+        if (!directed) {
+            Adjacency in = inList[v];
+            for (int i = 0; i < in.size; i++)
+                consumer.accept(numbers[in.vertexes[i]], vertex, in.weights[i]);
+        }
+    }
 
-        // if graph is undirected edges are double-sided
-        if (!directed)
-            for (Edge r : adjInList.get(out))
-                if (r.out == in)
-                    return r;
-        return null;
+    /**
+     * Passes every edge of graph to visitor once without allocating edge objects
+     * @param consumer visitor receiving outbound vertex, inbound vertex and weight of every edge
+     */
+    public void forEachEdge(IntEdgeConsumer consumer) {
+        if (outBits != null) {
+            for (int v = 0; v < count; v++)
+                for (int w = 0; w < words; w++)
+                    for (long word = outBits[v * words + w]; word != 0; word &= word - 1) {
+                        int u = (w << 6) + Long.numberOfTrailingZeros(word);
+                        consumer.accept(numbers[v], numbers[u], weights[v * capacity + u]);
+                    }
+            return;
+        }
+        for (int v = 0; v < count; v++) {
+            Adjacency out = outList[v];
+            for (int i = 0; i < out.size; i++)
+                consumer.accept(numbers[v], numbers[out.vertexes[i]], out.weights[i]);
+        }
+    }
+
+    /**
+     * Returns position of edge in outbound list of its outbound vertex for a given vertex indexes
+     * NOTE: only edge stored in out -> in direction is searched, even if graph is undirected
+     * @param out outbound vertex index
+     * @param in inbound vertex index
+     * @return position in outbound list of out (column of matrix if graph is stored in matrix)
+     *         or -1 if such an edge doesn't exist's
+     */
+    private int EdgeByIndex(int out, int in) {
+        if (out == -1 || in == -1)
+            return -1;
+        if (outBits != null)
+            return bit(outBits, out, in) ? in : -1;
+        return outList[out].indexOf(in);
     }
     /**
      * Add to graph vertex with a given number
@@ -219,9 +886,34 @@ public class Graph
      * @return true - if vertex added, false - if vertex with specified number is exist.
      */
     public boolean addVertex(int number) {
-        if (!adjOutList.containsKey(number)) {
-            adjOutList.put(number, new ArrayList<Edge>());
-            adjInList.put(number, new ArrayList<Edge>());
+        if (!indexes.containsKey(number)) {
+            checkWritable();
+            if (count == numbers.length) {
+                int capacity = Math.max(8, count * 2);
+                numbers = Arrays.copyOf(numbers, capacity);
+                if (outBits == null) {
+                    outList = Arrays.copyOf(outList, capacity);
+                    inList = Arrays.copyOf(inList, capacity);
+                }
+            }
+            if (outBits != null) {
+                // matrix grows by small steps, as its size is quadratic
+                if (count == capacity)
+                    resizeMatrix(capacity + Math.max(4, capacity / 8));
+            } else {
+                // lists left by removed vertex are reused along with their arrays
+                if (outList[count] == null || outList[count].epoch != epoch)
+                    outList[count] = new Adjacency(epoch);
+                if (inList[count] == null || inList[count].epoch != epoch)
+                    inList[count] = new Adjacency(epoch);
+            }
+            numbers[count] = number;
+            indexes.put(number, count);
+            count++;
+            record(GraphChanges.VERTEX_ADDED, number, 0, 0);
+            statistics.vertexAdded(number);
+            checkMatrix();
+            modified();
             return true;
         }
         return false;
@@ -233,7 +925,7 @@ public class Graph
      * @return true - if vertex exists, false - otherwise
      */
     public boolean hasVertex(int number) {
-        return adjInList.containsKey(number);
+        return indexes.containsKey(number);
     }
 
 
@@ -242,10 +934,64 @@ public class Graph
      * @return max number of vertex
      */
     public int maxNumber() {
-        if (adjInList.size() != 0)
-            return Collections.max(adjInList.keySet());
-        else
-            return 0;
+        return statistics.maxNumber();
+    }
+
+    /**
+     * Counts min and max vertex number by scanning all vertexes. Used by {@link GraphStatistics}
+     * @return array of min and max number (zeros if graph is empty)
+     */
+    int[] numberRange() {
+        if (count == 0)
+            return new int[2];
+        int min = numbers[0];
+        int max = numbers[0];
+        for (int v = 1; v < count; v++) {
+            if (numbers[v] < min)
+                min = numbers[v];
+            if (numbers[v] > max)
+                max = numbers[v];
+        }
+        return new int[] { min, max };
+    }
+
+    /**
+     * Counts min and max edge weight by scanning all edges. Used by {@link GraphStatistics}
+     * @return array of min weight, max weight, count of edges with min weight and with max weight
+     *         (zeros if there are no edges)
+     */
+    int[] weightRange() {
+        int[] range = { Integer.MAX_VALUE, Integer.MIN_VALUE, 0, 0 };
+        for (int v = 0; v < count; v++) {
+            if (outBits != null) {
+                for (int w = 0; w < words; w++)
+                    for (long word = outBits[v * words + w]; word != 0; word &= word - 1)
+                        countWeight(range, weights[v * capacity + (w << 6) + Long.numberOfTrailingZeros(word)]);
+            } else {
+                Adjacency out = outList[v];
+                for (int i = 0; i < out.size; i++)
+                    countWeight(range, out.weights[i]);
+            }
+        }
+        if (range[0] > range[1])
+            return new int[4];
+        return range;
+    }
+
+    // adds weight to array of min weight, max weight and counts of edges having them
+    private static void countWeight(int[] range, int weight) {
+        if (weight < range[0]) {
+            range[0] = weight;
+            range[2] = 0;
+        }
+        if (weight == range[0])
+            range[2]++;
+        if (weight > range[1]) {
+            range[1] = weight;
+            range[3] = 0;
+        }
+        if (weight == range[1])
+            range[3]++;
     }
 
     /**
@@ -253,14 +999,111 @@ public class Graph
      * @param number number of vertex to be removed
      */
     public void removeVertex(int number) {
-        if (adjOutList.containsKey(number)) {
-            // remove all edges of vertex from other vertexes adjacent lists
-            for (Edge edge : adjOutList.get(number))
-                adjInList.get(edge.in).remove(edge);
-            for (Edge edge : adjInList.get(number))
-                adjOutList.get(edge.out).remove(edge);
-            adjOutList.remove(number);
-            adjInList.remove(number);
+        int v = indexOf(number);
+        if (v != -1) {
+            checkWritable();
+            if (outBits != null) {
+                removeMatrixVertex(v, number);
+                checkMatrix();
+                modified();
+                return;
+            }
+            // remove all edges of vertex from other vertexes adjacent lists, twins point right to them
+            Adjacency out = writableOut(v);
+            writableIn(v);
+            statistics.degreeChanged(degree(v), 0);
+            for (int i = 0; i < out.size; i++) {
+                int u = out.vertexes[i];
+                if (u != v)
+                    statistics.degreeChanged(degree(u), degree(u) - 1);
+                statistics.edgeRemoved(out.weights[i]);
+                record(GraphChanges.EDGE_REMOVED, number, numbers[u], out.weights[i]);
+                removeInbound(u, out.twins[i]);
+            }
+            // self-loop is already removed from own inbound list
+            Adjacency in = inList[v];
+            for (int i = 0; i < in.size; i++) {
+                int u = in.vertexes[i];
+                statistics.degreeChanged(degree(u), degree(u) - 1);
+                statistics.edgeRemoved(in.weights[i]);
+                record(GraphChanges.EDGE_REMOVED, numbers[u], number, in.weights[i]);
+                removeOutbound(u, in.twins[i]);
+            }
+            out.clear();
+            in.clear();
+            indexes.remove(number);
+            record(GraphChanges.VERTEX_REMOVED, number, 0, 0);
+            statistics.vertexRemoved(number);
+
+            // the last vertex takes index of removed one, so its neighbours are pointed to new index
+            int last = --count;
+            if (v != last) {
+                outList[v] = outList[last];
+                inList[v] = inList[last];
+                outList[last] = out;
+                inList[last] = in;
+                numbers[v] = numbers[last];
+                indexes.put(numbers[v], v);
+                Adjacency moved = writableOut(v);
+                writableIn(v);
+                for (int i = 0; i < moved.size; i++)
+                    writableIn(moved.vertexes[i] == last ? v : moved.vertexes[i]).rename(moved.twins[i], v);
+                moved = inList[v];
+                for (int i = 0; i < moved.size; i++)
+                    writableOut(moved.vertexes[i] == last ? v : moved.vertexes[i]).rename(moved.twins[i], v);
+            }
+            modified();
+        }
+    }
+
+    // removes vertex of graph stored in matrix, the last vertex takes its row and column
+    private void removeMatrixVertex(int v, int number) {
+        statistics.degreeChanged(degree(v), 0);
+        for (int w = 0; w < words; w++)
+            for (long word = outBits[v * words + w]; word != 0; word &= word - 1) {
+                int u = (w << 6) + Long.numberOfTrailingZeros(word);
+                if (u != v)
+                    statistics.degreeChanged(degree(u), degree(u) - 1);
+                statistics.edgeRemoved(weights[v * capacity + u]);
+                record(GraphChanges.EDGE_REMOVED, number, numbers[u], weights[v * capacity + u]);
+                clearBit(inBits, u, v);
+            }
+        // self-loop is already removed from own inbound row
+        for (int w = 0; w < words; w++)
+            for (long word = inBits[v * words + w]; word != 0; word &= word - 1) {
+                int u = (w << 6) + Long.numberOfTrailingZeros(word);
+                statistics.degreeChanged(degree(u), degree(u) - 1);
+                statistics.edgeRemoved(weights[u * capacity + v]);
+                record(GraphChanges.EDGE_REMOVED, numbers[u], number, weights[u * capacity + v]);
+                clearBit(outBits, u, v);
+            }
+        Arrays.fill(outBits, v * words, (v + 1) * words, 0L);
+        Arrays.fill(inBits, v * words, (v + 1) * words, 0L);
+        indexes.remove(number);
+        record(GraphChanges.VERTEX_REMOVED, number, 0, 0);
+        statistics.vertexRemoved(number);
+
+        int last = --count;
+        if (v != last) {
+            System.arraycopy(outBits, last * words, outBits, v * words, words);
+            System.arraycopy(inBits, last * words, inBits, v * words, words);
+            System.arraycopy(weights, last * capacity, weights, v * capacity, last + 1);
+            Arrays.fill(outBits, last * words, (last + 1) * words, 0L);
+            Arrays.fill(inBits, last * words, (last + 1) * words, 0L);
+            // column of removed vertex is empty already
+            for (int u = 0; u < last; u++) {
+                if (bit(outBits, u, last)) {
+                    clearBit(outBits, u, last);
+                    setBit(outBits, u, v);
+                }
+                if (bit(inBits, u, last)) {
+                    clearBit(inBits, u, last);
+                    setBit(inBits, u, v);
+                }
+                weights[u * capacity + v] = weights[u * capacity + last];
+            }
+            numbers[v] = numbers[last];
+            indexes.put(numbers[v], v);
         }
     }
 
@@ -270,31 +1113,43 @@ public class Graph
      * @param newNumber new number
      */
     public void changeVertexNumber(int number, int newNumber) {
-        if (adjOutList.containsKey(number) && !adjOutList.containsKey(newNumber)) {
-            // since Edge object reference is the same for both vertex list's, we can simple change number only in one list
-            adjOutList.put(newNumber, new ArrayList<Edge>());
-            for (Edge edge : adjOutList.get(number)) {
-                adjOutList.get(newNumber).add(edge);
-                edge.out = newNumber;
-            }
-            adjInList.put(newNumber, new ArrayList<Edge>());
-            for (Edge edge : adjInList.get(number)) {
-                adjInList.get(newNumber).add(edge);
-                edge.in = newNumber;
-            }
-            adjOutList.remove(number);
-            adjInList.remove(number);
+        int v = indexOf(number);
+        if (v != -1 && !indexes.containsKey(newNumber)) {
+            // lists refer to vertexes by index, so only numbers mapping is changed
+            checkWritable();
+            indexes.remove(number);
+            indexes.put(newNumber, v);
+            numbers[v] = newNumber;
+            record(GraphChanges.VERTEX_RENUMBERED, number, newNumber, 0);
+            statistics.numberChanged(number, newNumber);
+            modified();
         }
     }
 
     public void changeEdgeWeight(int out, int in, int weight) {
-        if (adjOutList.containsKey(out)) {
-            for (Edge edge : adjOutList.get(out)) {
-                if (edge.getIn() == in) {
-                    edge.weight = weight;
-                    return;
-                }
+        int outIndex = indexOf(out);
+        int inIndex = indexOf(in);
+        int i = EdgeByIndex(outIndex, inIndex);
+        if (i == -1 && !directed) {
+            // edge of undirected graph may be stored in counter direction
+            int temp = outIndex;
+            outIndex = inIndex;
+            inIndex = temp;
+            i = EdgeByIndex(outIndex, inIndex);
+        }
+        if (i != -1) {
+            checkWritable();
+            int oldWeight;
+            if (outBits != null) {
+                oldWeight = weights[outIndex * capacity + inIndex];
+                weights[outIndex * capacity + inIndex] = weight;
+            } else {
+                Adjacency outbound = writableOut(outIndex);
+                oldWeight = outbound.weights[i];
+                outbound.weights[i] = weight;
+                writableIn(inIndex).weights[outbound.twins[i]] = weight;
             }
+            edgeWeightChanged(outIndex, inIndex, oldWeight, weight);
         }
     }
 
@@ -313,15 +1168,32 @@ public class Graph
      * @param weight Edge weight
      */
     public boolean addEdge(int out, int in, int weight) {
-        if (adjOutList.containsKey(out)) {
-            Edge edge = EdgeByNumber(out, in);
+        int outIndex = indexOf(out);
+        int inIndex = indexOf(in);
+        if (outIndex != -1 && inIndex != -1) {
+            if (outBits != null) {
+                // edge is a bit in row of outbound vertex and a bit in column (transposed row) of inbound one
+                if (bit(outBits, outIndex, inIndex) || (!directed && bit(inBits, outIndex, inIndex)))
+                    return false;
+                checkWritable();
+                setBit(outBits, outIndex, inIndex);
+                setBit(inBits, inIndex, outIndex);
+                weights[outIndex * capacity + inIndex] = weight;
+                edgeAdded(outIndex, inIndex, weight);
+                return true;
+            }
             // test if edge already exists, counter edge are allowed only in directed
-            if (edge != null && (directed && edge.out == out))
+            if (outList[outIndex].indexOf(inIndex) != -1 ||
+                    (!directed && inList[outIndex].indexOf(inIndex) != -1))
                 return false;
-            edge = new Edge(out, in, weight);
             // add edge at once in two lists - as outbound edge and as inbound edge
-            adjOutList.get(out).add(edge);
-            adjInList.get(in).add(edge);
+            checkWritable();
+            Adjacency outbound = writableOut(outIndex);
+            Adjacency inbound = writableIn(inIndex);
+            outbound.add(inIndex, weight, inbound.size);
+            inbound.add(outIndex, weight, outbound.size - 1);
+            edgeAdded(outIndex, inIndex, weight);
+            checkMatrix();
             return true;
         }
         return false;
@@ -333,10 +1205,36 @@ public class Graph
      * @param in inbound vertex number
      */
     public void removeEdge(int out, int in) {
-        if (adjOutList.containsKey(out)) {
-            Edge edge = EdgeByNumber(out, in);
-            adjOutList.get(out).remove(edge);
-            adjInList.get(in).remove(edge);
+        int outIndex = indexOf(out);
+        int inIndex = indexOf(in);
+        int i = EdgeByIndex(outIndex, inIndex);
+        if (i == -1 && !directed) {
+            // edge of undirected graph may be stored in counter direction
+            int temp = outIndex;
+            outIndex = inIndex;
+            inIndex = temp;
+            i = EdgeByIndex(outIndex, inIndex);
+        }
+        if (i != -1) {
+            checkWritable();
+            int weight = outBits != null ? weights[outIndex * capacity + inIndex] : outList[outIndex].weights[i];
+            record(GraphChanges.EDGE_REMOVED, numbers[outIndex], numbers[inIndex], weight);
+            statistics.edgeRemoved(weight);
+            if (outIndex == inIndex) {
+                statistics.degreeChanged(degree(outIndex), degree(outIndex) - 2);
+            } else {
+                statistics.degreeChanged(degree(outIndex), degree(outIndex) - 1);
+                statistics.degreeChanged(degree(inIndex), degree(inIndex) - 1);
+            }
+            if (outBits != null) {
+                clearBit(outBits, outIndex, inIndex);
+                clearBit(inBits, inIndex, outIndex);
+            } else {
+                removeInbound(inIndex, outList[outIndex].twins[i]);
+                removeOutbound(outIndex, i);
+            }
+            checkMatrix();
+            modified();
         }
     }
 
@@ -346,12 +1244,198 @@ public class Graph
      * @param out outbound vertex number
      */
     public boolean adjacent(int out, int in) {
-        if (EdgeByNumber(out, in) != null)
+        int outIndex = indexOf(out);
+        int inIndex = indexOf(in);
+        if (EdgeByIndex(outIndex, inIndex) != -1)
             return true;
-        return false;
+        // if graph is undirected edges are double-sided
+        return !directed && EdgeByIndex(inIndex, outIndex) != -1;
     }
 
+    /**
+     * Returns count of common neighbours of two vertexes: vertexes adjacent to both of them
+     * (for directed graph - vertexes that both of them have outbound edges to)
+     * @param first first vertex number
+     * @param second second vertex number
+     * @return count of common neighbours or 0 if there are no such vertexes
+     */
+    public int commonNeighbours(int first, int second) {
+        int a = indexOf(first);
+        int b = indexOf(second);
+        if (a == -1 || b == -1)
+            return 0;
+        int common = 0;
+        if (outBits != null) {
+            // neighbours of vertex in undirected graph are union of its row and column
+            for (int i = a * words, j = b * words, end = i + words; i < end; i++, j++)
+                common += directed
+                        ? Long.bitCount(outBits[i] & outBits[j])
+                        : Long.bitCount((outBits[i] | inBits[i]) & (outBits[j] | inBits[j]));
+            return common;
+        }
+        // test neighbours of vertex with less edges against adjacency of another one
+        if (outList[a].size + (directed ? 0 : inList[a].size) > outList[b].size + (directed ? 0 : inList[b].size)) {
+            int temp = a;
+            a = b;
+            b = temp;
+        }
+        Adjacency out = outList[a];
+        for (int i = 0; i < out.size; i++)
+            if (linked(b, out.vertexes[i]))
+                common++;
+        if (!directed) {
+            // self-loop is in both lists, it is counted once, and so is neighbour with counter edges
+            // (directed graph switched to undirected one can have them)
+            Adjacency in = inList[a];
+            for (int i = 0; i < in.size; i++)
+                if (in.vertexes[i] != a && out.indexOf(in.vertexes[i]) == -1 && linked(b, in.vertexes[i]))
+                    common++;
+        }
+        return common;
+    }
 
+    // true if vertex has edge to neighbour (in any direction for undirected graph), by indexes
+    private boolean linked(int vertex, int neighbour) {
+        return outList[vertex].indexOf(neighbour) != -1 ||
+                (!directed && inList[vertex].indexOf(neighbour) != -1);
+    }
 
+    /**
+     * Fills empty graph with vertexes and edges at once. Used by {@link GraphBuilder}
+     * @param numbers numbers of vertexes in order of their indexes
+     * @param indexes map from vertex number to index
+     * @param out outbound vertex indexes of edges (there must be no repeating edges)
+     * @param in inbound vertex indexes of edges
+     * @param weight edge weights
+     */
+    void load(int[] numbers, IntIntHashMap indexes, int[] out, int[] in, int[] weight) {
+        int n = numbers.length;
+        int[] outDegree = new int[n];
+        int[] inDegree = new int[n];
+        for (int e = 0; e < out.length; e++) {
+            outDegree[out[e]]++;
+            inDegree[in[e]]++;
+        }
+        this.numbers = numbers;
+        this.indexes = indexes;
+        count = n;
+        outList = new Adjacency[n];
+        inList = new Adjacency[n];
+        for (int v = 0; v < n; v++) {
+            outList[v] = new Adjacency(outDegree[v], epoch);
+            inList[v] = new Adjacency(inDegree[v], epoch);
+        }
+        for (int e = 0; e < out.length; e++) {
+            outList[out[e]].add(in[e], weight[e], inList[in[e]].size);
+            inList[in[e]].add(out[e], weight[e], outList[out[e]].size - 1);
+        }
+        statistics = new GraphStatistics(this);
+        for (int v = 0; v < n; v++) {
+            statistics.vertexAdded(numbers[v]);
+            statistics.degreeChanged(0, outDegree[v] + inDegree[v]);
+        }
+        for (int e = 0; e < out.length; e++)
+            statistics.edgeAdded(weight[e]);
+        checkMatrix();
+        modified();
+    }
 
+    /**
+     * Returns immutable CSR snapshot of graph for read-only algorithms.
+     * Snapshot is cached and rebuilt only after graph has been modified
+     * @return snapshot of current graph state
+     */
+    public FrozenGraph freeze() {
+        if (frozen == null)
+            frozen = buildFrozen();
+        return frozen;
+    }
+
+    private FrozenGraph buildFrozen() {
+        // snapshot uses the same dense indexes as graph
+        int n = count;
+        int[] numbers = Arrays.copyOf(this.numbers, n);
+        IntIntHashMap indexes = new IntIntHashMap(this.indexes);
+
+        int m = statistics.edgeCount();
+        int[] edgeOut = new int[m];
+        int[] edgeIn = new int[m];
+        int[] edgeWeight = new int[m];
+        int[] inOffsets = new int[n + 1];
+        int[] sources = new int[m];
+        int[] inWeights = new int[m];
+        int e = 0;
+        int s = 0;
+        for (int v = 0; v < n; v++) {
+            if (outBits != null) {
+                // rows of matrix are read in order of columns, so edges are grouped by vertex in the same way
+                for (int w = 0; w < words; w++)
+                    for (long word = outBits[v * words + w]; word != 0; word &= word - 1) {
+                        int u = (w << 6) + Long.numberOfTrailingZeros(word);
+                        edgeOut[e] = v;
+                        edgeIn[e] = u;
+                        edgeWeight[e] = weights[v * capacity + u];
+                        e++;
+                    }
+                for (int w = 0; w < words; w++)
+                    for (long word = inBits[v * words + w]; word != 0; word &= word - 1) {
+                        int u = (w << 6) + Long.numberOfTrailingZeros(word);
+                        sources[s] = u;
+                        inWeights[s] = weights[u * capacity + v];
+                        s++;
+                    }
+            } else {
+                Adjacency out = outList[v];
+                for (int j = 0; j < out.size; j++) {
+                    edgeOut[e] = v;
+                    edgeIn[e] = out.vertexes[j];
+                    edgeWeight[e] = out.weights[j];
+                    e++;
+                }
+                Adjacency in = inList[v];
+                System.arraycopy(in.vertexes, 0, sources, s, in.size);
+                System.arraycopy(in.weights, 0, inWeights, s, in.size);
+                s += in.size;
+            }
+            inOffsets[v + 1] = s;
+        }
+
+        if (!directed) {
+            // forward adjacency of undirected graph is both outbound and inbound edges
+            int[] offsets = new int[n + 1];
+            int[] targets = new int[2 * m];
+            int[] weights = new int[2 * m];
+            s = 0;
+            e = 0;
+            for (int v = 0; v < n; v++) {
+                for (; e < m && edgeOut[e] == v; e++) {
+                    targets[s] = edgeIn[e];
+                    weights[s] = edgeWeight[e];
+                    s++;
+                }
+                for (int j = inOffsets[v]; j < inOffsets[v + 1]; j++) {
+                    targets[s] = sources[j];
+                    weights[s] = inWeights[j];
+                    s++;
+                }
+                offsets[v + 1] = s;
+            }
+            return new FrozenGraph(false, numbers, indexes, offsets, targets, weights,
+                    offsets, targets, weights, edgeOut, edgeIn, edgeWeight, edgeOffsets(edgeOut, n));
+        }
+
+        // edges are grouped by outbound vertex already, so forward adjacency is the edge list itself
+        int[] offsets = edgeOffsets(edgeOut, n);
+        return new FrozenGraph(true, numbers, indexes, offsets, edgeIn, edgeWeight,
+                inOffsets, sources, inWeights, edgeOut, edgeIn, edgeWeight, offsets);
+    }
+
+    private static int[] edgeOffsets(int[] edgeOut, int n) {
+        int[] offsets = new int[n + 1];
+        for (int e = 0; e < edgeOut.length; e++)
+            offsets[edgeOut[e] + 1]++;
+        for (int v = 0; v < n; v++)
+            offsets[v + 1] += offsets[v];
+        return offsets;
+    }
 }
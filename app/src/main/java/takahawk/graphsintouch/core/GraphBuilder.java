@@ -0,0 +1,158 @@
+package takahawk.graphsintouch.core;
+
+import java.util.Arrays;
+
+import takahawk.takalibrary.IntIntHashMap;
+
+/**
+ * Builder for loading large graphs at once.
+ * Vertexes and edges are collected into primitive arrays in batches, and graph is built in one pass:
+ * duplicate edges are dropped with counting sort by vertex instead of per-edge search, and adjacency lists
+ * are allocated with exact size from vertex degrees. Total cost is O(V + E).
+ * @author takahawk
+ */
+public class GraphBuilder {
+
+    private boolean directed;
+    private int[] vertexes = new int[0];
+    private int vertexCount;
+    private int[] out = new int[0];
+    private int[] in = new int[0];
+    private int[] weight = new int[0];
+    private int edgeCount;
+
+    /**
+     * Creates builder of directed or undirected graph
+     * @param directed true - if graph will be directed, false - if undirected
+     */
+    public GraphBuilder(boolean directed) {
+        this.directed = directed;
+    }
+
+    /**
+     * Adds vertexes with given numbers. Repeating numbers are ignored
+     * @param numbers numbers of vertexes
+     * @return this builder
+     */
+    public GraphBuilder addVertexes(int[] numbers) {
+        if (vertexCount + numbers.length > vertexes.length)
+            vertexes = Arrays.copyOf(vertexes, Math.max(vertexCount + numbers.length, vertexes.length * 2));
+        System.arraycopy(numbers, 0, vertexes, vertexCount, numbers.length);
+        vertexCount += numbers.length;
+        return this;
+    }
+
+    /**
+     * Adds batch of edges. Vertexes that were not added yet are added automatically.
+     * Like in {@link Graph#addEdge(int, int, int)} only the first of repeating edges is added
+     * (for undirected graph counter edge is repeating too)
+     * @param out outbound vertex numbers
+     * @param in inbound vertex numbers
+     * @param weight edge weights or null for weight 1 of all edges
+     * @return this builder
+     */
+    public GraphBuilder addEdges(int[] out, int[] in, int[] weight) {
+        if (out.length != in.length || (weight != null && weight.length != out.length))
+            throw new IllegalArgumentException("Edge arrays have different lengths");
+        int n = out.length;
+        if (edgeCount + n > this.out.length) {
+            int capacity = Math.max(edgeCount + n, this.out.length * 2);
+            this.out = Arrays.copyOf(this.out, capacity);
+            this.in = Arrays.copyOf(this.in, capacity);
+            this.weight = Arrays.copyOf(this.weight, capacity);
+        }
+        System.arraycopy(out, 0, this.out, edgeCount, n);
+        System.arraycopy(in, 0, this.in, edgeCount, n);
+        if (weight != null)
+            System.arraycopy(weight, 0, this.weight, edgeCount, n);
+        else
+            Arrays.fill(this.weight, edgeCount, edgeCount + n, 1);
+        edgeCount += n;
+        return this;
+    }
+
+    /**
+     * Builds graph from all added vertexes and edges
+     * @return new graph
+     */
+    public Graph build() {
+        // assign dense indexes: explicit vertexes first, then edge ends in order of appearance
+        IntIntHashMap indexes = new IntIntHashMap(vertexCount + edgeCount / 4);
+        int[] numbers = new int[Math.max(vertexCount, 8)];
+        int n = 0;
+        for (int i = 0; i < vertexCount; i++) {
+            if (!indexes.containsKey(vertexes[i])) {
+                indexes.put(vertexes[i], n);
+                numbers[n++] = vertexes[i];
+            }
+        }
+        int m = edgeCount;
+        int[] outIndex = new int[m];
+        int[] inIndex = new int[m];
+        for (int e = 0; e < m; e++) {
+            for (int side = 0; side < 2; side++) {
+                int number = (side == 0) ? out[e] : in[e];
+                int index = indexes.get(number, -1);
+                if (index == -1) {
+                    if (n == numbers.length)
+                        numbers = Arrays.copyOf(numbers, n * 2);
+                    index = n;
+                    indexes.put(number, n);
+                    numbers[n++] = number;
+                }
+                if (side == 0)
+                    outIndex[e] = index;
+                else
+                    inIndex[e] = index;
+            }
+        }
+
+        // counting sort of edges by the first vertex of key (stable, so the first of duplicates goes first),
+        // undirected edge key is unordered pair of vertexes
+        int[] start = new int[n + 1];
+        for (int e = 0; e < m; e++)
+            start[keyVertex(outIndex[e], inIndex[e]) + 1]++;
+        for (int v = 0; v < n; v++)
+            start[v + 1] += start[v];
+        int[] order = new int[m];
+        int[] position = Arrays.copyOf(start, n);
+        for (int e = 0; e < m; e++)
+            order[position[keyVertex(outIndex[e], inIndex[e])]++] = e;
+
+        // inside of bucket duplicates have the same second vertex, it is marked with a stamp of bucket
+        int[] stamp = new int[n];
+        boolean[] keep = new boolean[m];
+        int kept = 0;
+        for (int v = 0; v < n; v++) {
+            for (int i = start[v]; i < start[v + 1]; i++) {
+                int e = order[i];
+                int other = (keyVertex(outIndex[e], inIndex[e]) == outIndex[e]) ? inIndex[e] : outIndex[e];
+                if (stamp[other] != v + 1) {
+                    stamp[other] = v + 1;
+                    keep[e] = true;
+                    kept++;
+                }
+            }
+        }
+
+        int[] keptOut = new int[kept];
+        int[] keptIn = new int[kept];
+        int[] keptWeight = new int[kept];
+        int k = 0;
+        for (int e = 0; e < m; e++) {
+            if (keep[e]) {
+                keptOut[k] = outIndex[e];
+                keptIn[k] = inIndex[e];
+                keptWeight[k] = weight[e];
+                k++;
+            }
+        }
+        Graph graph = new Graph(directed);
+        graph.load(Arrays.copyOf(numbers, n), indexes, keptOut, keptIn, keptWeight);
+        return graph;
+    }
+
+    private int keyVertex(int out, int in) {
+        return (directed || out <= in) ? out : in;
+    }
+}
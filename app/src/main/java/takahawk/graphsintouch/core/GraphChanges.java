@@ -0,0 +1,96 @@
+package takahawk.graphsintouch.core;
+
+/**
+ * Batch of graph changes delivered to {@link GraphListener}.
+ * Changes are stored in order they were made as records of four ints (type and three arguments) in one array,
+ * so batch takes no objects per change. Applying changes in order to a copy of graph with version
+ * {@link #fromVersion()} gives graph with version {@link #toVersion()}.
+ * Removal of vertex is preceded by removal of all its edges.
+ * @author takahawk
+ */
+public class GraphChanges {
+    /** Vertex added: vertex(i) */
+    public static final int VERTEX_ADDED = 0;
+    /** Vertex removed: vertex(i) */
+    public static final int VERTEX_REMOVED = 1;
+    /** Vertex number changed: vertex(i) is old number, newNumber(i) - new one */
+    public static final int VERTEX_RENUMBERED = 2;
+    /** Edge added: out(i), in(i), weight(i) */
+    public static final int EDGE_ADDED = 3;
+    /** Edge removed: out(i), in(i), weight(i) */
+    public static final int EDGE_REMOVED = 4;
+    /** Edge weight changed: out(i), in(i), weight(i) is new weight */
+    public static final int EDGE_REWEIGHTED = 5;
+    /** Graph switched between directed and undirected: directed(i) */
+    public static final int DIRECTION_CHANGED = 6;
+
+    static final int RECORD_SIZE = 4;
+
+    private final int[] records;
+    private final long fromVersion;
+    private final long toVersion;
+
+    GraphChanges(int[] records, long fromVersion, long toVersion) {
+        this.records = records;
+        this.fromVersion = fromVersion;
+        this.toVersion = toVersion;
+    }
+
+    /**
+     * Returns version of graph before the first change of batch
+     * @return graph version
+     */
+    public long fromVersion() {
+        return fromVersion;
+    }
+
+    /**
+     * Returns version of graph after the last change of batch
+     * @return graph version
+     */
+    public long toVersion() {
+        return toVersion;
+    }
+
+    /**
+     * Returns count of changes
+     * @return count of changes
+     */
+    public int size() {
+        return records.length / RECORD_SIZE;
+    }
+
+    /**
+     * Returns type of change
+     * @param i index of change
+     * @return one of VERTEX_ADDED, VERTEX_REMOVED, VERTEX_RENUMBERED, EDGE_ADDED, EDGE_REMOVED,
+     *         EDGE_REWEIGHTED, DIRECTION_CHANGED
+     */
+    public int type(int i) {
+        return records[i * RECORD_SIZE];
+    }
+
+    public int vertex(int i) {
+        return records[i * RECORD_SIZE + 1];
+    }
+
+    public int newNumber(int i) {
+        return records[i * RECORD_SIZE + 2];
+    }
+
+    public int out(int i) {
+        return records[i * RECORD_SIZE + 1];
+    }
+
+    public int in(int i) {
+        return records[i * RECORD_SIZE + 2];
+    }
+
+    public int weight(int i) {
+        return records[i * RECORD_SIZE + 3];
+    }
+
+    public boolean directed(int i) {
+        return records[i * RECORD_SIZE + 1] != 0;
+    }
+}
@@ -0,0 +1,13 @@
+package takahawk.graphsintouch.core;
+
+/**
+ * Listener of graph modifications
+ * @author takahawk
+ */
+public interface GraphListener {
+    /**
+     * Called after graph is modified, once for every single modification or for every batch
+     * @param changes changes made to graph
+     */
+    void graphChanged(GraphChanges changes);
+}
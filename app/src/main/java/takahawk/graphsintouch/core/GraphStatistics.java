@@ -0,0 +1,304 @@
+package takahawk.graphsintouch.core;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Statistics of a graph, that are maintained by graph on every modification. Returned by {@link Graph#statistics()}.
+ * Counters and degree histogram are read in O(1). Extremes are read in O(1) too, except the first read after
+ * the last occurrence of extreme value is removed: it can't be restored without scanning, so the extreme is
+ * recounted then, once. That costs O(V) for vertex number (vertex with min or max number is removed or
+ * renumbered) and O(E) for edge weight. Edges with extreme weight are counted, so removal of one of several
+ * edges with the same extreme weight (e.g. default weight 1) doesn't lead to recount.
+ * Degree of vertex is count of all its edges, both outbound and inbound (self-loop counts twice).
+ * @author takahawk
+ */
+public class GraphStatistics
+    implements Serializable {
+
+    private Graph graph;
+
+    private int vertexCount;
+    private int minNumber;
+    private int maxNumber;
+    private boolean numbersStale;
+
+    private int edgeCount;
+    private long totalWeight;
+    private int minWeight;
+    private int maxWeight;
+    // count of edges with min and max weight
+    private int minWeightEdges;
+    private int maxWeightEdges;
+    private boolean weightsStale;
+    private int negativeWeights;
+
+    // degrees[d] - count of vertexes with degree d
+    private int[] degrees = new int[8];
+    private int maxDegree;
+
+    GraphStatistics(Graph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Creates copy of statistics belonging to another graph (e.g. snapshot)
+     */
+    GraphStatistics(GraphStatistics statistics, Graph graph) {
+        this.graph = graph;
+        vertexCount = statistics.vertexCount;
+        minNumber = statistics.minNumber;
+        maxNumber = statistics.maxNumber;
+        numbersStale = statistics.numbersStale;
+        edgeCount = statistics.edgeCount;
+        totalWeight = statistics.totalWeight;
+        minWeight = statistics.minWeight;
+        maxWeight = statistics.maxWeight;
+        minWeightEdges = statistics.minWeightEdges;
+        maxWeightEdges = statistics.maxWeightEdges;
+        weightsStale = statistics.weightsStale;
+        negativeWeights = statistics.negativeWeights;
+        degrees = Arrays.copyOf(statistics.degrees, statistics.maxDegree + 1);
+        maxDegree = statistics.maxDegree;
+    }
+
+    /**
+     * Return count of vertexes
+     * @return count of vertexes
+     */
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * Returns count of edges
+     * @return count of edges
+     */
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Returns min number of vertex
+     * @return min number of vertex or 0 if graph is empty
+     */
+    public int minNumber() {
+        if (numbersStale)
+            recountNumbers();
+        return minNumber;
+    }
+
+    /**
+     * Returns max number of vertex
+     * @return max number of vertex or 0 if graph is empty
+     */
+    public int maxNumber() {
+        if (numbersStale)
+            recountNumbers();
+        return maxNumber;
+    }
+
+    /**
+     * Returns sum of weights of all edges
+     * @return total weight
+     */
+    public long totalWeight() {
+        return totalWeight;
+    }
+
+    /**
+     * Returns min weight of edge
+     * @return min weight or 0 if there are no edges
+     */
+    public int minWeight() {
+        if (weightsStale)
+            recountWeights();
+        return minWeight;
+    }
+
+    /**
+     * Returns max weight of edge
+     * @return max weight or 0 if there are no edges
+     */
+    public int maxWeight() {
+        if (weightsStale)
+            recountWeights();
+        return maxWeight;
+    }
+
+    /**
+     * Returns true if graph has edges with negative weight
+     * @return true - if there are negative weights, false - otherwise
+     */
+    public boolean hasNegativeWeights() {
+        return negativeWeights > 0;
+    }
+
+    /**
+     * Returns max degree of vertex
+     * @return max degree or 0 if graph is empty
+     */
+    public int maxDegree() {
+        return maxDegree;
+    }
+
+    /**
+     * Returns count of vertexes with a given degree
+     * @param degree degree of vertex
+     * @return count of vertexes
+     */
+    public int degreeCount(int degree) {
+        if (degree < 0 || degree > maxDegree)
+            return 0;
+        return degrees[degree];
+    }
+
+    /**
+     * Returns degree histogram
+     * @return array of length maxDegree() + 1, where element d is count of vertexes with degree d
+     */
+    public int[] degreeHistogram() {
+        return Arrays.copyOf(degrees, maxDegree + 1);
+    }
+
+    void vertexAdded(int number) {
+        if (vertexCount == 0) {
+            minNumber = maxNumber = number;
+            numbersStale = false;
+        } else if (!numbersStale) {
+            if (number < minNumber)
+                minNumber = number;
+            if (number > maxNumber)
+                maxNumber = number;
+        }
+        vertexCount++;
+        degrees[0]++;
+    }
+
+    /**
+     * Must be called after all edges of vertex are removed
+     */
+    void vertexRemoved(int number) {
+        vertexCount--;
+        degrees[0]--;
+        numberRemoved(number);
+    }
+
+    void numberChanged(int number, int newNumber) {
+        numberRemoved(number);
+        if (!numbersStale) {
+            if (newNumber < minNumber)
+                minNumber = newNumber;
+            if (newNumber > maxNumber)
+                maxNumber = newNumber;
+        }
+    }
+
+    private void numberRemoved(int number) {
+        if (vertexCount == 0) {
+            minNumber = maxNumber = 0;
+            numbersStale = false;
+        } else if (number == minNumber || number == maxNumber) {
+            numbersStale = true;
+        }
+    }
+
+    void edgeAdded(int weight) {
+        if (edgeCount == 0) {
+            minWeight = maxWeight = weight;
+            minWeightEdges = maxWeightEdges = 1;
+            weightsStale = false;
+        } else {
+            weightAdded(weight);
+        }
+        edgeCount++;
+        totalWeight += weight;
+        if (weight < 0)
+            negativeWeights++;
+    }
+
+    void edgeRemoved(int weight) {
+        edgeCount--;
+        totalWeight -= weight;
+        if (weight < 0)
+            negativeWeights--;
+        weightRemoved(weight);
+    }
+
+    void weightChanged(int weight, int newWeight) {
+        totalWeight += (long) newWeight - weight;
+        if (weight < 0)
+            negativeWeights--;
+        if (newWeight < 0)
+            negativeWeights++;
+        weightRemoved(weight);
+        weightAdded(newWeight);
+    }
+
+    private void weightAdded(int weight) {
+        if (!weightsStale) {
+            if (weight < minWeight) {
+                minWeight = weight;
+                minWeightEdges = 1;
+            } else if (weight == minWeight) {
+                minWeightEdges++;
+            }
+            if (weight > maxWeight) {
+                maxWeight = weight;
+                maxWeightEdges = 1;
+            } else if (weight == maxWeight) {
+                maxWeightEdges++;
+            }
+        }
+    }
+
+    private void weightRemoved(int weight) {
+        if (edgeCount == 0) {
+            minWeight = maxWeight = 0;
+            weightsStale = false;
+        } else if (!weightsStale) {
+            if (weight == minWeight && --minWeightEdges == 0)
+                weightsStale = true;
+            if (weight == maxWeight && --maxWeightEdges == 0)
+                weightsStale = true;
+        }
+    }
+
+    void degreeChanged(int degree, int newDegree) {
+        degrees[degree]--;
+        if (newDegree >= degrees.length)
+            degrees = Arrays.copyOf(degrees, Math.max(newDegree + 1, degrees.length * 2));
+        degrees[newDegree]++;
+        if (newDegree > maxDegree)
+            maxDegree = newDegree;
+        while (maxDegree > 0 && degrees[maxDegree] == 0)
+            maxDegree--;
+    }
+
+    /**
+     * Recounts extremes that are stale, so statistics can be read without access to graph.
+     * Takes O(V + E) time in the worst case
+     */
+    void refresh() {
+        if (numbersStale)
+            recountNumbers();
+        if (weightsStale)
+            recountWeights();
+    }
+
+    private void recountNumbers() {
+        int[] range = graph.numberRange();
+        minNumber = range[0];
+        maxNumber = range[1];
+        numbersStale = false;
+    }
+
+    private void recountWeights() {
+        int[] range = graph.weightRange();
+        minWeight = range[0];
+        maxWeight = range[1];
+        minWeightEdges = range[2];
+        maxWeightEdges = range[3];
+        weightsStale = false;
+    }
+}
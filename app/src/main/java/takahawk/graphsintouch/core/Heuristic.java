@@ -0,0 +1,18 @@
+package takahawk.graphsintouch.core;
+
+/**
+ * Estimate of shortest path length used by A* search.
+ * To keep found paths shortest, estimate must never exceed real length of the shortest path (be admissible).
+ * A* search settles every vertex once, so estimate must also be consistent: for every edge (u, v) estimate of u
+ * doesn't exceed weight of edge plus estimate of v. Straight-line and landmark estimates are consistent
+ * @author takahawk
+ */
+public interface Heuristic {
+    /**
+     * Returns lower bound of shortest path length from vertex to destination
+     * @param vertex vertex number
+     * @param destination destination vertex number
+     * @return estimated path length (non-negative)
+     */
+    long estimate(int vertex, int destination);
+}
@@ -0,0 +1,171 @@
+package takahawk.graphsintouch.core;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps contraction hierarchy of a changing graph. When graph version changes, hierarchy is rebuilt
+ * in background thread from graph snapshot, and the old hierarchy keeps serving queries until the new one is ready.
+ * If graph is changed several times while hierarchy is being built, only the latest version is built next.
+ * Rebuild is requested by {@link #update(Graph)}, or automatically on every change of graph it is attached to.
+ * Graphs with negative weights have no hierarchy
+ * @author takahawk
+ */
+public class HierarchyRebuilder {
+
+    private final AtomicReference<ContractionHierarchy> current = new AtomicReference<>();
+    private final ExecutorService executor;
+    // latest snapshot waiting for build and version that is being built, guarded by this
+    private Graph pending;
+    private long building = -1;
+    // graph whose changes request rebuild, guarded by this
+    private Graph attached;
+    private final GraphListener listener = new GraphListener() {
+        @Override
+        public void graphChanged(GraphChanges changes) {
+            Graph graph;
+            synchronized (HierarchyRebuilder.this) {
+                graph = attached;
+            }
+            if (graph != null)
+                update(graph);
+        }
+    };
+
+    public HierarchyRebuilder() {
+        executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "hierarchy-rebuilder");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Returns the latest built hierarchy. It can be built for older graph version, check {@link ContractionHierarchy#version()}
+     * @return the latest hierarchy or null if none is built yet
+     */
+    public ContractionHierarchy current() {
+        return current.get();
+    }
+
+    /**
+     * Requests rebuild if hierarchy is not built (or being built) for current version of graph or a newer one.
+     * Must be called on the thread that modifies graph, as it takes graph snapshot
+     * @param graph graph or its snapshot
+     * @return the latest built hierarchy, the same as {@link #current()}
+     */
+    public ContractionHierarchy update(Graph graph) {
+        // graph is not touched under lock of rebuilder: concurrent graph calls listener under its own lock
+        synchronized (this) {
+            if (requested(graph.version()))
+                return current.get();
+        }
+        Graph snapshot = graph.statistics().hasNegativeWeights() ? null : graph.snapshot();
+        synchronized (this) {
+            if (snapshot == null) {
+                pending = null;
+                return current.get();
+            }
+            if (requested(snapshot.version()) || executor.isShutdown())
+                return current.get();
+            boolean idle = pending == null && building == -1;
+            pending = snapshot;
+            if (idle)
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        build();
+                    }
+                });
+            return current.get();
+        }
+    }
+
+    // true if hierarchy of version or of a newer one is built, being built or waiting for build
+    // (query can come with snapshot older than the latest change of graph)
+    private boolean requested(long version) {
+        ContractionHierarchy hierarchy = current.get();
+        return (hierarchy != null && hierarchy.version() >= version) || building >= version
+                || (pending != null && pending.version() >= version);
+    }
+
+    /**
+     * Subscribes to changes of graph, so rebuild starts as soon as graph is modified, not on the next query.
+     * Rebuild for the current version is requested at once. Rebuilder can be attached to one graph at a time.
+     * Must be called on the thread that modifies graph, as listener is called on it and takes graph snapshots
+     * @param graph modifiable graph
+     */
+    public void attach(Graph graph) {
+        Graph old;
+        synchronized (this) {
+            if (attached == graph)
+                return;
+            old = attached;
+            attached = graph;
+        }
+        if (old != null)
+            old.removeListener(listener);
+        graph.addListener(listener);
+        update(graph);
+    }
+
+    /**
+     * Unsubscribes from changes of attached graph, if any
+     */
+    public void detach() {
+        Graph old;
+        synchronized (this) {
+            old = attached;
+            attached = null;
+        }
+        if (old != null)
+            old.removeListener(listener);
+    }
+
+    /**
+     * Returns shortest path found by the latest built hierarchy, that can be built for older graph version
+     * @param source source vertex number
+     * @param destination destination vertex number
+     * @return list representing shortest path or null if there is no path or no hierarchy
+     */
+    public List<Integer> shortestPath(int source, int destination) {
+        ContractionHierarchy hierarchy = current.get();
+        return (hierarchy == null) ? null : hierarchy.shortestPath(source, destination);
+    }
+
+    /**
+     * Detaches from graph and stops background thread. Hierarchy that is being built is finished,
+     * later rebuild requests are ignored
+     */
+    public void shutdown() {
+        detach();
+        executor.shutdown();
+    }
+
+    private void build() {
+        while (true) {
+            Graph snapshot;
+            synchronized (this) {
+                snapshot = pending;
+                pending = null;
+                if (snapshot == null) {
+                    building = -1;
+                    return;
+                }
+                building = snapshot.version();
+            }
+            try {
+                current.set(ContractionHierarchy.build(snapshot));
+            } catch (IllegalArgumentException e) {
+                // concurrent graph got negative weight before snapshot was taken, old hierarchy is kept
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package takahawk.graphsintouch.core;
+
+/**
+ * Visitor that receives edges as primitive values, so edge traversal doesn't allocate edge objects
+ * @author takahawk
+ */
+public interface IntEdgeConsumer {
+    /**
+     * Called for every visited edge
+     * @param out outbound vertex number
+     * @param in inbound vertex number
+     * @param weight edge weight
+     */
+    void accept(int out, int in, int weight);
+}
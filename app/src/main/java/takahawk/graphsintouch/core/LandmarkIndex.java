@@ -0,0 +1,225 @@
+package takahawk.graphsintouch.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import takahawk.takalibrary.IndexedMinHeap;
+import takahawk.takalibrary.Parallel;
+
+/**
+ * A* heuristic for graphs without layout (ALT: A*, landmarks and triangle inequality).
+ * Distances from and to a few landmark vertexes are precomputed. For landmark L by triangle inequality
+ * dist(v, t) >= dist(L, t) - dist(L, v) and dist(v, t) >= dist(v, L) - dist(t, L), the heuristic is the best
+ * of these bounds over all landmarks.
+ * Landmarks are chosen by farthest-point strategy: every next landmark is the vertex with the most hops to
+ * already chosen ones (unreachable vertexes first), so landmarks lie on the border of graph and in every component.
+ * Distances are computed by Dijkstra's algorithm, one landmark per task, so construction can run in parallel.
+ * Distances are kept in int arrays; distance that doesn't fit is treated as unknown, as unreachable one.
+ * Index is built for one graph version, weights must be non-negative
+ * @author takahawk
+ */
+public class LandmarkIndex
+    implements Heuristic {
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    private final FrozenGraph graph;
+    private final long version;
+    private final int[] landmarks;
+    // from[l][v] - distance from landmark l to vertex v, to[l][v] - from vertex v to landmark l
+    // (the same arrays for undirected graph)
+    private final int[][] from;
+    private final int[][] to;
+
+    /**
+     * Builds index on the calling thread
+     * @param graph graph with non-negative weights (usually read-only snapshot)
+     * @param count count of landmarks
+     */
+    public LandmarkIndex(Graph graph, int count) {
+        this(graph, count, null);
+    }
+
+    /**
+     * Builds index, distances of every landmark are computed by a separate task
+     * @param graph graph with non-negative weights (usually read-only snapshot)
+     * @param count count of landmarks
+     * @param executor executor for tasks or null to compute on the calling thread
+     */
+    public LandmarkIndex(Graph graph, int count, ExecutorService executor) {
+        if (count < 1)
+            throw new IllegalArgumentException("Landmark count must be positive: " + count);
+        if (graph.statistics().hasNegativeWeights())
+            throw new IllegalArgumentException("Landmarks require non-negative weights");
+        version = graph.version();
+        this.graph = graph.freeze();
+        landmarks = chooseLandmarks(Math.min(count, this.graph.vertexCount()));
+        from = new int[landmarks.length][];
+        to = this.graph.isDirected() ? new int[landmarks.length][] : from;
+
+        if (executor == null) {
+            for (int l = 0; l < landmarks.length; l++)
+                computeDistances(l);
+        } else {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int i = 0; i < landmarks.length; i++) {
+                final int l = i;
+                tasks.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        computeDistances(l);
+                        return null;
+                    }
+                });
+            }
+            Parallel.invokeAll(executor, tasks);
+        }
+    }
+
+    private void computeDistances(int l) {
+        from[l] = distances(landmarks[l], graph.offsets, graph.targets, graph.weights);
+        if (to != from)
+            to[l] = distances(landmarks[l], graph.inOffsets, graph.sources, graph.inWeights);
+    }
+
+    // farthest-point selection by hop count over edges of both directions
+    private int[] chooseLandmarks(int count) {
+        int n = graph.vertexCount();
+        int[] result = new int[count];
+        if (count == 0)
+            return result;
+        // hops[v] - hops from v to the nearest chosen landmark
+        int[] hops = new int[n];
+        int[] queue = new int[n];
+        Arrays.fill(hops, INFINITY);
+        // the first landmark is the farthest vertex from vertex 0, as if vertex 0 were landmark
+        int next = farthest(breadthFirstSearch(0, hops.clone(), queue));
+        for (int i = 0; i < count; i++) {
+            result[i] = next;
+            next = farthest(breadthFirstSearch(next, hops, queue));
+        }
+        return result;
+    }
+
+    // decreases hops by distances from source, returns hops
+    private int[] breadthFirstSearch(int source, int[] hops, int[] queue) {
+        int head = 0;
+        int tail = 0;
+        hops[source] = 0;
+        queue[tail++] = source;
+        while (head < tail) {
+            int vertex = queue[head++];
+            int next = hops[vertex] + 1;
+            for (int slot = graph.offsets[vertex]; slot < graph.offsets[vertex + 1]; slot++) {
+                int target = graph.targets[slot];
+                if (hops[target] > next) {
+                    hops[target] = next;
+                    queue[tail++] = target;
+                }
+            }
+            for (int slot = graph.inOffsets[vertex]; slot < graph.inOffsets[vertex + 1]; slot++) {
+                int origin = graph.sources[slot];
+                if (hops[origin] > next) {
+                    hops[origin] = next;
+                    queue[tail++] = origin;
+                }
+            }
+        }
+        return hops;
+    }
+
+    private static int farthest(int[] hops) {
+        int result = 0;
+        for (int v = 1; v < hops.length; v++)
+            if (hops[v] > hops[result])
+                result = v;
+        return result;
+    }
+
+    // Dijkstra's algorithm over given adjacency arrays
+    private int[] distances(int source, int[] offsets, int[] targets, int[] weights) {
+        int n = graph.vertexCount();
+        long[] dist = new long[n];
+        Arrays.fill(dist, Long.MAX_VALUE);
+        IndexedMinHeap heap = new IndexedMinHeap(n);
+        dist[source] = 0;
+        heap.offer(source, 0);
+        while (!heap.isEmpty()) {
+            int vertex = heap.poll();
+            long distance = dist[vertex];
+            for (int slot = offsets[vertex]; slot < offsets[vertex + 1]; slot++) {
+                int target = targets[slot];
+                long alt = distance + weights[slot];
+                if (alt < dist[target]) {
+                    dist[target] = alt;
+                    heap.offer(target, alt);
+                }
+            }
+        }
+        int[] result = new int[n];
+        for (int v = 0; v < n; v++)
+            result[v] = (dist[v] >= INFINITY) ? INFINITY : (int) dist[v];
+        return result;
+    }
+
+    /**
+     * Returns version of graph index is built for
+     * @return graph version
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Returns landmark vertex numbers
+     * @return landmark numbers in order of choice
+     */
+    public int[] landmarks() {
+        int[] result = new int[landmarks.length];
+        for (int i = 0; i < landmarks.length; i++)
+            result[i] = graph.numbers[landmarks[i]];
+        return result;
+    }
+
+    /**
+     * Returns approximate size of distance arrays in bytes
+     * @return memory usage in bytes
+     */
+    public long memoryUsage() {
+        long arrays = (to == from) ? landmarks.length : 2L * landmarks.length;
+        return arrays * (4L * graph.vertexCount() + 16) + 4L * landmarks.length + 64;
+    }
+
+    /**
+     * Returns shortest path found by A* search with this index as heuristic
+     * @param source source vertex number
+     * @param destination destination vertex number
+     * @return list representing shortest path from source to destination
+     * @see Algorithms#shortestPathAStar(FrozenGraph, int, int, Heuristic)
+     */
+    public List<Integer> shortestPath(int source, int destination) {
+        return Algorithms.shortestPathAStar(graph, source, destination, this);
+    }
+
+    @Override
+    public long estimate(int vertex, int destination) {
+        int v = graph.indexOf(vertex);
+        int t = graph.indexOf(destination);
+        if (v == -1 || t == -1)
+            return 0;
+        long result = 0;
+        for (int l = 0; l < landmarks.length; l++) {
+            int fromV = from[l][v];
+            int fromT = from[l][t];
+            if (fromV != INFINITY && fromT != INFINITY)
+                result = Math.max(result, (long) fromT - fromV);
+            int toV = to[l][v];
+            int toT = to[l][t];
+            if (toV != INFINITY && toT != INFINITY)
+                result = Math.max(result, (long) toV - toT);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,105 @@
+package takahawk.graphsintouch.core;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of shortest path trees keyed by source vertex and graph version.
+ * Trees of the least recently used sources are evicted when total size of trees exceeds memory budget.
+ * Every modification of graph changes its version, so trees of older versions are never returned:
+ * they are dropped as soon as tree of newer version is stored.
+ * Cache can be used from several threads.
+ * @author takahawk
+ */
+public class ShortestPathCache {
+    private final long budget;
+    private long used;
+    private long version = -1;
+    // access order makes iteration start from the least recently used tree
+    private final LinkedHashMap<Integer, ShortestPathTree> trees =
+            new LinkedHashMap<Integer, ShortestPathTree>(16, 0.75f, true);
+
+    /**
+     * Creates empty cache
+     * @param budget max total size of cached trees in bytes
+     */
+    public ShortestPathCache(long budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Returns cached tree
+     * @param source source vertex number
+     * @param version graph version
+     * @return tree built from source for given graph version or null if there are no such a tree
+     */
+    public synchronized ShortestPathTree get(int source, long version) {
+        if (version != this.version)
+            return null;
+        return trees.get(source);
+    }
+
+    /**
+     * Returns cached tree or builds it and stores in cache
+     * @param graph graph (usually read-only snapshot, so it doesn't change while tree is built)
+     * @param source source vertex number
+     * @return shortest path tree or null if there are no such a vertex
+     */
+    public ShortestPathTree tree(Graph graph, int source) {
+        ShortestPathTree tree = get(source, graph.version());
+        if (tree == null) {
+            tree = Algorithms.shortestPathTree(graph, source);
+            if (tree != null)
+                put(tree);
+        }
+        return tree;
+    }
+
+    /**
+     * Stores tree in cache. Tree of older graph version than cached ones is ignored, tree of newer version
+     * replaces all cached trees
+     * @param tree shortest path tree
+     */
+    public synchronized void put(ShortestPathTree tree) {
+        if (tree.version() < version || tree.memoryUsage() > budget)
+            return;
+        if (tree.version() > version) {
+            clear();
+            version = tree.version();
+        }
+        ShortestPathTree old = trees.put(tree.source(), tree);
+        if (old != null)
+            used -= old.memoryUsage();
+        used += tree.memoryUsage();
+        Iterator<Map.Entry<Integer, ShortestPathTree>> eldest = trees.entrySet().iterator();
+        while (used > budget) {
+            used -= eldest.next().getValue().memoryUsage();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Removes all trees
+     */
+    public synchronized void clear() {
+        trees.clear();
+        used = 0;
+    }
+
+    /**
+     * Returns count of cached trees
+     * @return count of trees
+     */
+    public synchronized int size() {
+        return trees.size();
+    }
+
+    /**
+     * Returns total size of cached trees
+     * @return size in bytes
+     */
+    public synchronized long memoryUsage() {
+        return used;
+    }
+}
@@ -0,0 +1,76 @@
+package takahawk.graphsintouch.core;
+
+import java.util.List;
+
+/**
+ * Tree of shortest paths from one source to all reachable vertexes of a graph.
+ * Built by {@link Algorithms#shortestPathTree(Graph, int)}, after that path to any destination
+ * is restored by walking parent pointers, without running search again.
+ * Tree is bound to the version of graph it was built for.
+ * @author takahawk
+ */
+public class ShortestPathTree {
+    private final FrozenGraph graph;
+    private final long version;
+    private final int from;
+    private final long[] dist;
+    private final int[] prev;
+
+    ShortestPathTree(FrozenGraph graph, long version, int from, long[] dist, int[] prev) {
+        this.graph = graph;
+        this.version = version;
+        this.from = from;
+        this.dist = dist;
+        this.prev = prev;
+    }
+
+    /**
+     * Returns number of source vertex
+     * @return source vertex number
+     */
+    public int source() {
+        return graph.numbers[from];
+    }
+
+    /**
+     * Returns version of graph that tree is built for
+     * @return graph version
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Returns length of the shortest path from source to destination
+     * @param destination destination vertex number
+     * @return path length or -1 if destination is unreachable
+     */
+    public long distanceTo(int destination) {
+        int to = graph.indexOf(destination);
+        if (to == -1 || dist[to] == Long.MAX_VALUE)
+            return -1;
+        return dist[to];
+    }
+
+    /**
+     * Returns shortest path from source to destination in the same form as
+     * {@link Algorithms#shortestPathDijkstra(Graph, int, int)}
+     * @param destination destination vertex number
+     * @return list of vertex numbers from source to destination or null if destination is unreachable
+     */
+    public List<Integer> pathTo(int destination) {
+        int to = graph.indexOf(destination);
+        if (to == -1)
+            return null;
+        return Algorithms.buildPath(graph, prev, from, to);
+    }
+
+    /**
+     * Returns approximate size of tree in memory. Graph snapshot is shared by trees and is not counted
+     * @return size in bytes
+     */
+    public long memoryUsage() {
+        // array headers and object itself are rounded up to 64 bytes
+        return dist.length * 8L + prev.length * 4L + 64;
+    }
+}
@@ -0,0 +1,66 @@
+package takahawk.takalibrary;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Disjoint set forest of int elements 0..size-1 that can be used by several threads at once without locks.
+ * Root links to itself, roots are joined by compare-and-set of parent: root with bigger index goes under
+ * root with smaller one, so there are no cycles whatever the order of concurrent unions is.
+ * Paths are halved on find by compare-and-set too, failed halving is just skipped
+ * @author takahawk
+ */
+public class ConcurrentUnionFind {
+
+    private final AtomicIntegerArray parent;
+
+    /**
+     * Creates forest of singletons
+     * @param size count of elements
+     */
+    public ConcurrentUnionFind(int size) {
+        parent = new AtomicIntegerArray(size);
+        for (int i = 0; i < size; i++)
+            parent.set(i, i);
+    }
+
+    /**
+     * Returns root of tree element belongs to (used as id of subset).
+     * If unions are done concurrently, root can stop being root right after return
+     * @param x element
+     * @return root element
+     */
+    public int find(int x) {
+        while (true) {
+            int next = parent.get(x);
+            if (next == x)
+                return x;
+            int grandparent = parent.get(next);
+            if (grandparent != next)
+                parent.compareAndSet(x, next, grandparent);
+            x = next;
+        }
+    }
+
+    /**
+     * Joins subsets of two elements
+     * @param x first element
+     * @param y second element
+     * @return true - if subsets are joined by this call, false - if elements are already in the same subset
+     */
+    public boolean union(int x, int y) {
+        while (true) {
+            x = find(x);
+            y = find(y);
+            if (x == y)
+                return false;
+            if (x < y) {
+                int temp = x;
+                x = y;
+                y = temp;
+            }
+            // fails if x got a parent since find, then roots are looked for again
+            if (parent.compareAndSet(x, x, y))
+                return true;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package takahawk.takalibrary;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Binary min-heap of int elements 0..capacity-1 with long keys.
+ * Heap knows position of every element, so key of element that is already in heap can be decreased
+ * in O(log n) without duplicates (it is what Dijkstra's and Prim's algorithms need).
+ * All content is kept in primitive arrays, there are no boxing and no entry objects.
+ * @author takahawk
+ */
+public class IndexedMinHeap {
+
+    private final int[] heap;
+    private final long[] keys;
+    // position of element in heap or -1 if element is not in heap
+    private final int[] positions;
+    private int size;
+
+    /**
+     * Creates empty heap for elements 0..capacity-1
+     * @param capacity count of possible elements
+     */
+    public IndexedMinHeap(int capacity) {
+        heap = new int[capacity];
+        keys = new long[capacity];
+        positions = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns true if element is in heap
+     * @param element element
+     * @return true - if element is in heap, false - otherwise
+     */
+    public boolean contains(int element) {
+        return positions[element] != -1;
+    }
+
+    /**
+     * Returns key of element that is in heap
+     * @param element element
+     * @return key of element
+     */
+    public long key(int element) {
+        return keys[element];
+    }
+
+    /**
+     * Inserts element with a given key or decreases key of element that is already in heap
+     * @param element element
+     * @param key key
+     * @return true - if element is inserted or its key is decreased, false - if element has less or equal key
+     */
+    public boolean offer(int element, long key) {
+        int i = positions[element];
+        if (i == -1) {
+            i = size++;
+        } else if (keys[element] <= key) {
+            return false;
+        }
+        keys[element] = key;
+        siftUp(i, element);
+        return true;
+    }
+
+    /**
+     * Inserts element with a given key or changes key of element that is already in heap, both up and down
+     * @param element element
+     * @param key key
+     */
+    public void update(int element, long key) {
+        int i = positions[element];
+        if (i == -1) {
+            keys[element] = key;
+            siftUp(size++, element);
+        } else if (key < keys[element]) {
+            keys[element] = key;
+            siftUp(i, element);
+        } else {
+            keys[element] = key;
+            siftDown(i, element);
+        }
+    }
+
+    /**
+     * Returns element with minimal key without removing it
+     * @return element with minimal key
+     */
+    public int peek() {
+        if (size == 0)
+            throw new NoSuchElementException();
+        return heap[0];
+    }
+
+    /**
+     * Removes and returns element with minimal key
+     * @return element with minimal key
+     */
+    public int poll() {
+        if (size == 0)
+            throw new NoSuchElementException();
+        int top = heap[0];
+        positions[top] = -1;
+        int last = heap[--size];
+        if (size > 0)
+            siftDown(0, last);
+        return top;
+    }
+
+    /**
+     * Removes all elements. Takes time proportional to count of elements in heap, not to capacity
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++)
+            positions[heap[i]] = -1;
+        size = 0;
+    }
+
+    private void siftUp(int i, int element) {
+        long key = keys[element];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            int parentElement = heap[parent];
+            if (keys[parentElement] <= key)
+                break;
+            heap[i] = parentElement;
+            positions[parentElement] = i;
+            i = parent;
+        }
+        heap[i] = element;
+        positions[element] = i;
+    }
+
+    private void siftDown(int i, int element) {
+        long key = keys[element];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[heap[child]])
+                child = right;
+            if (key <= keys[heap[child]])
+                break;
+            heap[i] = heap[child];
+            positions[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = element;
+        positions[element] = i;
+    }
+}
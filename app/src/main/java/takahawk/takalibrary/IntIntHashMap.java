@@ -0,0 +1,190 @@
+package takahawk.takalibrary;
+
+import java.io.Serializable;
+
+/**
+ * Hash map with primitive int keys and int values.
+ * It uses open addressing with linear probing, so there are no boxing and no entry objects:
+ * all content is kept in three flat arrays.
+ * Deletion shifts back following entries of a probe chain, so map doesn't accumulate tombstones.
+ * @author takahawk
+ */
+public class IntIntHashMap
+    implements Serializable {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private int[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size;
+    private int mask;
+
+    /**
+     * Creates new empty map
+     */
+    public IntIntHashMap() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    /**
+     * Creates new empty map that can hold given count of keys without rehashing
+     * @param expectedSize expected count of keys
+     */
+    public IntIntHashMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2)
+            capacity <<= 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Creates copy of a given map
+     * @param map map to be copied
+     */
+    public IntIntHashMap(IntIntHashMap map) {
+        keys = map.keys.clone();
+        values = map.values.clone();
+        used = map.used.clone();
+        size = map.size;
+        mask = map.mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    private int slot(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Returns count of keys in map
+     * @return count of keys
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns true if map contains a given key
+     * @param key key
+     * @return true - if key is present, false - otherwise
+     */
+    public boolean containsKey(int key) {
+        int i = slot(key);
+        while (used[i]) {
+            if (keys[i] == key)
+                return true;
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Returns value associated with a key
+     * @param key key
+     * @param defaultValue value to be returned if there are no such a key
+     * @return associated value or defaultValue
+     */
+    public int get(int key, int defaultValue) {
+        int i = slot(key);
+        while (used[i]) {
+            if (keys[i] == key)
+                return values[i];
+            i = (i + 1) & mask;
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Associates value with a key, replacing previous value if any
+     * @param key key
+     * @param value value
+     */
+    public void put(int key, int value) {
+        int i = slot(key);
+        while (used[i]) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        used[i] = true;
+        // keep load factor not greater than 1/2
+        if (++size * 2 > keys.length)
+            rehash(keys.length * 2);
+    }
+
+    /**
+     * Removes key from map
+     * @param key key
+     * @return true - if key was present, false - otherwise
+     */
+    public boolean remove(int key) {
+        int i = slot(key);
+        while (used[i]) {
+            if (keys[i] == key) {
+                shiftBack(i);
+                size--;
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Removes all keys
+     */
+    public void clear() {
+        java.util.Arrays.fill(used, false);
+        size = 0;
+    }
+
+    // closes the gap at position hole moving back entries that can't be found past it
+    private void shiftBack(int hole) {
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            if (!used[i])
+                break;
+            int home = slot(keys[i]);
+            // entry stays if its home lies cyclically in (hole, i]
+            if (hole <= i ? (hole < home && home <= i) : (hole < home || home <= i))
+                continue;
+            keys[hole] = keys[i];
+            values[hole] = values[i];
+            hole = i;
+        }
+        used[hole] = false;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int j = slot(oldKeys[i]);
+                while (used[j])
+                    j = (j + 1) & mask;
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+                used[j] = true;
+            }
+        }
+    }
+}
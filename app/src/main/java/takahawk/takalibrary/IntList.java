@@ -0,0 +1,82 @@
+package takahawk.takalibrary;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive int values, it keeps them in one array without boxing
+ * @author takahawk
+ */
+public class IntList {
+
+    private int[] values;
+    private int size;
+
+    /**
+     * Creates new empty list
+     */
+    public IntList() {
+        this(8);
+    }
+
+    /**
+     * Creates new empty list that can hold given count of values without growing
+     * @param capacity initial capacity
+     */
+    public IntList(int capacity) {
+        values = new int[Math.max(capacity, 1)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Appends value to the end of list
+     * @param value value
+     */
+    public void add(int value) {
+        if (size == values.length)
+            values = Arrays.copyOf(values, size * 2);
+        values[size++] = value;
+    }
+
+    /**
+     * Returns value at a given position
+     * @param index position
+     * @return value
+     */
+    public int get(int index) {
+        if (index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        return values[index];
+    }
+
+    /**
+     * Removes values from a given position to the end of list, capacity is kept
+     * @param size new size, not greater than current one
+     */
+    public void truncate(int size) {
+        if (size > this.size)
+            throw new IndexOutOfBoundsException("Size: " + size + ", current size: " + this.size);
+        this.size = size;
+    }
+
+    /**
+     * Removes all values, capacity is kept
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Returns values as array
+     * @return new array of length size()
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
@@ -0,0 +1,41 @@
+package takahawk.takalibrary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Helpers of parallel algorithms
+ * @author takahawk
+ */
+public class Parallel {
+
+    private Parallel() {
+    }
+
+    /**
+     * Runs tasks and waits for all of them. Memory writes of tasks are visible to caller after return
+     * @param executor executor
+     * @param tasks tasks
+     * @return results in order of tasks
+     * @throws IllegalStateException if a task failed or waiting is interrupted
+     */
+    public static <T> List<T> invokeAll(ExecutorService executor, List<Callable<T>> tasks) {
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> future : executor.invokeAll(tasks))
+                results.add(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Parallel computation is interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+        return results;
+    }
+}
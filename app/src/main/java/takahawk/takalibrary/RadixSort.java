@@ -0,0 +1,143 @@
+package takahawk.takalibrary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * LSD radix sort of int keys: four stable counting passes by bytes, from the lowest one.
+ * Pass is skipped when all keys have the same byte. Sign bit is flipped, so negative keys go first.
+ * Sort doesn't compare keys, so it takes O(n) time and can't overflow on extreme values.
+ * Parallel sort splits keys into chunks: every chunk counts its bytes and then moves its keys to its own
+ * positions, that keeps sort stable
+ * @author takahawk
+ */
+public class RadixSort {
+    private static final int RADIX = 256;
+    // less keys are sorted on the calling thread
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    private RadixSort() {
+    }
+
+    /**
+     * Returns permutation that sorts keys in ascending order, equal keys keep their order
+     * @param keys keys, they are not changed
+     * @return indexes of keys in sorted order
+     */
+    public static int[] order(int[] keys) {
+        return order(keys, null, 1);
+    }
+
+    /**
+     * Returns permutation that sorts keys in ascending order, equal keys keep their order
+     * @param keys keys, they are not changed
+     * @param executor executor for tasks or null to sort on the calling thread
+     * @param parallelism count of chunks (usually count of threads)
+     * @return indexes of keys in sorted order
+     */
+    public static int[] order(int[] keys, ExecutorService executor, int parallelism) {
+        int n = keys.length;
+        int chunks = (executor == null || n < PARALLEL_THRESHOLD) ? 1 : Math.max(1, parallelism);
+        int[] sourceKeys = new int[n];
+        int[] sourceIndexes = new int[n];
+        for (int i = 0; i < n; i++) {
+            sourceKeys[i] = keys[i] ^ Integer.MIN_VALUE;
+            sourceIndexes[i] = i;
+        }
+        int[] targetKeys = new int[n];
+        int[] targetIndexes = new int[n];
+        int[][] counts = new int[chunks][RADIX];
+        for (int shift = 0; shift < 32; shift += 8) {
+            count(sourceKeys, shift, counts, executor);
+            // positions of chunk c for byte b go after all smaller bytes and after chunks before c
+            boolean skip = false;
+            int position = 0;
+            for (int b = 0; b < RADIX && !skip; b++) {
+                for (int c = 0; c < chunks; c++) {
+                    int count = counts[c][b];
+                    if (count == n)
+                        skip = true;
+                    counts[c][b] = position;
+                    position += count;
+                }
+            }
+            if (skip)
+                continue;
+            scatter(sourceKeys, sourceIndexes, targetKeys, targetIndexes, shift, counts, executor);
+            int[] temp = sourceKeys;
+            sourceKeys = targetKeys;
+            targetKeys = temp;
+            temp = sourceIndexes;
+            sourceIndexes = targetIndexes;
+            targetIndexes = temp;
+        }
+        return sourceIndexes;
+    }
+
+    private static int begin(int length, int chunks, int chunk) {
+        return (int) ((long) length * chunk / chunks);
+    }
+
+    private static void count(final int[] keys, final int shift, final int[][] counts, ExecutorService executor) {
+        final int chunks = counts.length;
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int c = 0; c < chunks; c++) {
+            final int chunk = c;
+            tasks.add(new Chunk() {
+                @Override
+                void process() {
+                    int[] count = counts[chunk];
+                    Arrays.fill(count, 0);
+                    int end = begin(keys.length, chunks, chunk + 1);
+                    for (int i = begin(keys.length, chunks, chunk); i < end; i++)
+                        count[(keys[i] >>> shift) & (RADIX - 1)]++;
+                }
+            });
+        }
+        run(tasks, executor);
+    }
+
+    private static void scatter(final int[] keys, final int[] indexes, final int[] targetKeys, final int[] targetIndexes,
+                                final int shift, final int[][] positions, ExecutorService executor) {
+        final int chunks = positions.length;
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int c = 0; c < chunks; c++) {
+            final int chunk = c;
+            tasks.add(new Chunk() {
+                @Override
+                void process() {
+                    int[] position = positions[chunk];
+                    int end = begin(keys.length, chunks, chunk + 1);
+                    for (int i = begin(keys.length, chunks, chunk); i < end; i++) {
+                        int p = position[(keys[i] >>> shift) & (RADIX - 1)]++;
+                        targetKeys[p] = keys[i];
+                        targetIndexes[p] = indexes[i];
+                    }
+                }
+            });
+        }
+        run(tasks, executor);
+    }
+
+    private static void run(List<Callable<Void>> tasks, ExecutorService executor) {
+        if (tasks.size() == 1)
+            ((Chunk) tasks.get(0)).process();
+        else
+            Parallel.invokeAll(executor, tasks);
+    }
+
+    private abstract static class Chunk
+        implements Callable<Void> {
+
+        abstract void process();
+
+        @Override
+        public Void call() {
+            process();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package takahawk.takalibrary;
+
+/**
+ * Disjoint set forest (union-find) of int elements 0..size-1, kept in one int array.
+ * Trees are joined by size and paths are halved on find, so operations take almost constant amortized time.
+ * Unlike {@link DisjointSetForest} it doesn't box elements and doesn't allocate on operations
+ * @author takahawk
+ */
+public class UnionFind {
+
+    // parent of element or -(size of tree) for root
+    private final int[] parent;
+    private int count;
+
+    /**
+     * Creates forest of singletons
+     * @param size count of elements
+     */
+    public UnionFind(int size) {
+        parent = new int[size];
+        for (int i = 0; i < size; i++)
+            parent[i] = -1;
+        count = size;
+    }
+
+    /**
+     * Returns root of tree element belongs to (used as id of subset)
+     * @param x element
+     * @return root element
+     */
+    public int find(int x) {
+        while (parent[x] >= 0) {
+            int next = parent[x];
+            if (parent[next] >= 0) {
+                parent[x] = parent[next];
+                next = parent[next];
+            }
+            x = next;
+        }
+        return x;
+    }
+
+    /**
+     * Joins subsets of two elements
+     * @param x first element
+     * @param y second element
+     * @return true - if subsets are joined, false - if elements are already in the same subset
+     */
+    public boolean union(int x, int y) {
+        int xRoot = find(x);
+        int yRoot = find(y);
+        if (xRoot == yRoot)
+            return false;
+        // root of the smaller tree goes under root of the bigger one
+        if (parent[xRoot] > parent[yRoot]) {
+            int temp = xRoot;
+            xRoot = yRoot;
+            yRoot = temp;
+        }
+        parent[xRoot] += parent[yRoot];
+        parent[yRoot] = xRoot;
+        count--;
+        return true;
+    }
+
+    /**
+     * Returns count of disjoint subsets
+     * @return count of subsets
+     */
+    public int count() {
+        return count;
+    }
+}
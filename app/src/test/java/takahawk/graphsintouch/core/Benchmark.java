@@ -0,0 +1,82 @@
+package takahawk.graphsintouch.core;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Minimal timing harness of benchmarks in this package. Benchmarks are not unit tests, they have main method
+ * and are run by hand, e.g. from IDE, with enough heap (-Xmx2g). Every measurement is warmed up first and
+ * median of runs is printed, as single runs are distorted by JIT and garbage collection
+ */
+class Benchmark {
+    private static final int WARMUP = 3;
+    private static final int RUNS = 5;
+
+    private Benchmark() {
+    }
+
+    /**
+     * Measured code, returns any value depending on its work, so JIT can't drop it
+     */
+    interface Task {
+        long run() throws Exception;
+    }
+
+    /**
+     * Runs task and prints median time
+     * @param name name of measurement
+     * @param task measured code
+     * @return median time in milliseconds
+     */
+    static double measure(String name, Task task) throws Exception {
+        long sink = 0;
+        for (int i = 0; i < WARMUP; i++)
+            sink += task.run();
+        double[] times = new double[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            sink += task.run();
+            times[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(times);
+        double median = times[RUNS / 2];
+        System.out.printf("%-48s %10.1f ms  (%d)%n", name, median, sink & 0xF);
+        return median;
+    }
+
+    /**
+     * Returns random graph with vertexes 0..vertexes-1
+     * @param edges count of random edges, repeating ones are dropped
+     * @param maxWeight weights are 1..maxWeight
+     */
+    static Graph randomGraph(boolean directed, int vertexes, int edges, int maxWeight, long seed) {
+        Random random = new Random(seed);
+        int[] numbers = new int[vertexes];
+        for (int v = 0; v < vertexes; v++)
+            numbers[v] = v;
+        int[] out = new int[edges];
+        int[] in = new int[edges];
+        int[] weight = new int[edges];
+        for (int e = 0; e < edges; e++) {
+            out[e] = random.nextInt(vertexes);
+            in[e] = random.nextInt(vertexes);
+            weight[e] = 1 + random.nextInt(maxWeight);
+        }
+        return new GraphBuilder(directed).addVertexes(numbers).addEdges(out, in, weight).build();
+    }
+
+    /**
+     * Returns counts of threads to measure: powers of two less than count of processors and count of processors
+     */
+    static int[] threadCounts() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int size = 1;
+        while ((1 << size) < processors)
+            size++;
+        int[] counts = new int[size];
+        for (int i = 0; i < size - 1; i++)
+            counts[i] = 1 << i;
+        counts[size - 1] = processors;
+        return counts;
+    }
+}
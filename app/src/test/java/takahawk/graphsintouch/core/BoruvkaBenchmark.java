@@ -0,0 +1,47 @@
+package takahawk.graphsintouch.core;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Benchmark of parallel Borůvka's algorithm across thread counts against Kruskal's and Prim's algorithms
+ */
+public class BoruvkaBenchmark {
+    private static final int VERTEXES = 200000;
+    private static final int EDGES = 2000000;
+
+    public static void main(String[] args) throws Exception {
+        final FrozenGraph graph = Benchmark.randomGraph(false, VERTEXES, EDGES, 1000000, 1).freeze();
+        Benchmark.measure("Kruskal", new Benchmark.Task() {
+            @Override
+            public long run() {
+                return Algorithms.minForestKruskal(graph, null, 1).length;
+            }
+        });
+        Benchmark.measure("Prim", new Benchmark.Task() {
+            @Override
+            public long run() {
+                return Algorithms.spanningForestPrim(graph, false).length;
+            }
+        });
+        Benchmark.measure("Boruvka, calling thread", new Benchmark.Task() {
+            @Override
+            public long run() {
+                return Algorithms.minForestBoruvka(graph, null, 1).length;
+            }
+        });
+        for (final int threads : Benchmark.threadCounts()) {
+            final ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                Benchmark.measure("Boruvka, " + threads + " threads", new Benchmark.Task() {
+                    @Override
+                    public long run() {
+                        return Algorithms.minForestBoruvka(graph, executor, threads).length;
+                    }
+                });
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package takahawk.graphsintouch.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Benchmark of parallel edge insertion into {@link ConcurrentGraph} against sequential insertion
+ * into {@link Graph}
+ */
+public class ConcurrentGraphBenchmark {
+    private static final int VERTEXES = 100000;
+    private static final int EDGES = 2000000;
+
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(1);
+        final int[] out = new int[EDGES];
+        final int[] in = new int[EDGES];
+        for (int e = 0; e < EDGES; e++) {
+            out[e] = random.nextInt(VERTEXES);
+            in[e] = random.nextInt(VERTEXES);
+        }
+        Benchmark.measure("Graph, sequential", new Benchmark.Task() {
+            @Override
+            public long run() {
+                Graph graph = new Graph(false);
+                for (int v = 0; v < VERTEXES; v++)
+                    graph.addVertex(v);
+                for (int e = 0; e < EDGES; e++)
+                    graph.addEdge(out[e], in[e]);
+                return graph.edgeCount();
+            }
+        });
+        for (final int threads : Benchmark.threadCounts()) {
+            final ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                Benchmark.measure("ConcurrentGraph, " + threads + " threads", new Benchmark.Task() {
+                    @Override
+                    public long run() throws Exception {
+                        final ConcurrentGraph graph = new ConcurrentGraph(false);
+                        for (int v = 0; v < VERTEXES; v++)
+                            graph.addVertex(v);
+                        List<Callable<Void>> tasks = new ArrayList<>();
+                        for (int t = 0; t < threads; t++) {
+                            final int first = (int) ((long) EDGES * t / threads);
+                            final int last = (int) ((long) EDGES * (t + 1) / threads);
+                            tasks.add(new Callable<Void>() {
+                                @Override
+                                public Void call() {
+                                    for (int e = first; e < last; e++)
+                                        graph.addEdge(out[e], in[e]);
+                                    return null;
+                                }
+                            });
+                        }
+                        executor.invokeAll(tasks);
+                        return graph.edgeCount();
+                    }
+                });
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+}
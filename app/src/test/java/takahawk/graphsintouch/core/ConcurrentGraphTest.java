@@ -0,0 +1,188 @@
+package takahawk.graphsintouch.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Stress test of {@link ConcurrentGraph}: threads add, remove and test edges at once.
+ * Every thread owns its own vertex pairs, so it can check graph against its sequential model while other
+ * threads change the rest of graph
+ */
+public class ConcurrentGraphTest {
+    private static final int THREADS = 8;
+    private static final int VERTEXES = 200;
+    private static final int OPERATIONS = 20000;
+
+    // thread that owns vertex pair (pair of undirected graph is unordered)
+    private static int owner(int out, int in, boolean directed) {
+        int a = directed ? out : Math.min(out, in);
+        int b = directed ? in : Math.max(out, in);
+        return (a * 31 + b) % THREADS;
+    }
+
+    private static long key(int out, int in, boolean directed) {
+        if (!directed && out > in)
+            return (long) in * VERTEXES + out;
+        return (long) out * VERTEXES + in;
+    }
+
+    private static Set<Long> runMixed(final ConcurrentGraph graph, final boolean directed) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Callable<Set<Long>>> tasks = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final int thread = t;
+                tasks.add(new Callable<Set<Long>>() {
+                    @Override
+                    public Set<Long> call() {
+                        Random random = new Random(thread);
+                        Set<Long> model = new HashSet<>();
+                        int done = 0;
+                        while (done < OPERATIONS) {
+                            int out = random.nextInt(VERTEXES);
+                            int in = random.nextInt(VERTEXES);
+                            if (owner(out, in, directed) != thread)
+                                continue;
+                            done++;
+                            long key = key(out, in, directed);
+                            switch (random.nextInt(3)) {
+                                case 0:
+                                    assertEquals(model.add(key), graph.addEdge(out, in, 1 + random.nextInt(9)));
+                                    break;
+                                case 1:
+                                    graph.removeEdge(out, in);
+                                    model.remove(key);
+                                    break;
+                                default:
+                                    assertEquals(model.contains(key), graph.adjacent(out, in));
+                            }
+                        }
+                        return model;
+                    }
+                });
+            }
+            Set<Long> edges = new HashSet<>();
+            for (Future<Set<Long>> future : executor.invokeAll(tasks))
+                edges.addAll(future.get());
+            return edges;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void assertGraph(ConcurrentGraph graph, Set<Long> edges, boolean directed) {
+        assertEquals(edges.size(), graph.edgeCount());
+        assertEquals(edges.size(), graph.statistics().edgeCount());
+        assertEquals(edges.size(), graph.freeze().edgeCount());
+        Set<Long> actual = new HashSet<>();
+        for (Graph.Edge edge : graph.edges())
+            assertTrue(actual.add(key(edge.getOut(), edge.getIn(), directed)));
+        assertEquals(edges, actual);
+        for (int out = 0; out < VERTEXES; out++)
+            for (int in = 0; in < VERTEXES; in++)
+                assertEquals(edges.contains(key(out, in, directed)), graph.adjacent(out, in));
+    }
+
+    private static ConcurrentGraph graph(boolean directed) {
+        ConcurrentGraph graph = new ConcurrentGraph(directed, 16);
+        for (int v = 0; v < VERTEXES; v++)
+            graph.addVertex(v);
+        return graph;
+    }
+
+    @Test
+    public void mixedOperationsDirected() throws Exception {
+        ConcurrentGraph graph = graph(true);
+        assertGraph(graph, runMixed(graph, true), true);
+    }
+
+    @Test
+    public void mixedOperationsUndirected() throws Exception {
+        ConcurrentGraph graph = graph(false);
+        assertGraph(graph, runMixed(graph, false), false);
+    }
+
+    @Test
+    public void parallelInsertionOfSameEdges() throws Exception {
+        final ConcurrentGraph graph = graph(false);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            // all threads add the same edges, every edge must be added once
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final int thread = t;
+                tasks.add(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        int added = 0;
+                        // threads go in different orders and directions, so they race for every edge
+                        for (int out = 0; out < VERTEXES; out++) {
+                            int first = (out + thread * 17) % VERTEXES;
+                            for (int in = first; in < VERTEXES; in += 3) {
+                                boolean reversed = (thread & 1) == 1;
+                                if (graph.addEdge(reversed ? in : first, reversed ? first : in))
+                                    added++;
+                            }
+                        }
+                        return added;
+                    }
+                });
+            }
+            int added = 0;
+            for (Future<Integer> future : executor.invokeAll(tasks))
+                added += future.get();
+            Set<Long> edges = new HashSet<>();
+            for (Graph.Edge edge : graph.edges())
+                assertTrue(edges.add(key(edge.getOut(), edge.getIn(), false)));
+            assertEquals(edges.size(), graph.edgeCount());
+            assertEquals(edges.size(), added);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void snapshotsAreConsistentDuringWrites() throws Exception {
+        final ConcurrentGraph graph = graph(true);
+        final AtomicBoolean done = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Void> reader = executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    while (!done.get()) {
+                        Graph snapshot = graph.snapshot();
+                        int edges = snapshot.edgeCount();
+                        int counted = 0;
+                        for (Graph.Edge edge : snapshot.edges())
+                            counted++;
+                        assertEquals(edges, counted);
+                        assertEquals(edges, snapshot.freeze().edgeCount());
+                        assertEquals(edges, snapshot.statistics().edgeCount());
+                    }
+                    return null;
+                }
+            });
+            try {
+                runMixed(graph, true);
+            } finally {
+                done.set(true);
+            }
+            reader.get();
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package takahawk.graphsintouch.core;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark of contraction hierarchy: preprocessing, queries against Dijkstra and time from edit of graph
+ * to rebuilt hierarchy, when rebuilder is attached to graph. Random graph has no hierarchy like road network has,
+ * so preprocessing grows fast with its size and graph is small
+ */
+public class ContractionHierarchyBenchmark {
+    private static final int VERTEXES = 1000;
+    private static final int EDGES = 2500;
+    private static final int QUERIES = 200;
+
+    public static void main(String[] args) throws Exception {
+        final Graph graph = Benchmark.randomGraph(false, VERTEXES, EDGES, 100, 1);
+        Random random = new Random(2);
+        final int[] sources = new int[QUERIES];
+        final int[] destinations = new int[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            sources[q] = random.nextInt(VERTEXES);
+            destinations[q] = random.nextInt(VERTEXES);
+        }
+        Benchmark.measure("build", new Benchmark.Task() {
+            @Override
+            public long run() {
+                return ContractionHierarchy.build(graph).shortcutCount();
+            }
+        });
+        final ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+        Benchmark.measure(QUERIES + " queries, Dijkstra", new Benchmark.Task() {
+            @Override
+            public long run() {
+                long sink = 0;
+                for (int q = 0; q < QUERIES; q++) {
+                    List<Integer> path = Algorithms.shortestPathDijkstra(graph, sources[q], destinations[q]);
+                    sink += (path == null) ? 0 : path.size();
+                }
+                return sink;
+            }
+        });
+        Benchmark.measure(QUERIES + " queries, contraction hierarchy", new Benchmark.Task() {
+            @Override
+            public long run() {
+                long sink = 0;
+                for (int q = 0; q < QUERIES; q++) {
+                    List<Integer> path = hierarchy.shortestPath(sources[q], destinations[q]);
+                    sink += (path == null) ? 0 : path.size();
+                }
+                return sink;
+            }
+        });
+        final HierarchyRebuilder rebuilder = new HierarchyRebuilder();
+        try {
+            rebuilder.attach(graph);
+            final Random edits = new Random(3);
+            Benchmark.measure("edit to rebuilt hierarchy, attached", new Benchmark.Task() {
+                @Override
+                public long run() throws Exception {
+                    graph.addEdge(edits.nextInt(VERTEXES), edits.nextInt(VERTEXES), 1 + edits.nextInt(100));
+                    long version = graph.version();
+                    ContractionHierarchy current = rebuilder.current();
+                    while (current == null || current.version() < version) {
+                        Thread.sleep(1);
+                        current = rebuilder.current();
+                    }
+                    return current.shortcutCount();
+                }
+            });
+        } finally {
+            rebuilder.shutdown();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package takahawk.graphsintouch.core;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Benchmark of shortest path tree by parallel delta-stepping against sequential Dijkstra's algorithm
+ */
+public class DeltaSteppingBenchmark {
+    private static final int VERTEXES = 200000;
+    private static final int EDGES = 1000000;
+
+    public static void main(String[] args) throws Exception {
+        final Graph graph = Benchmark.randomGraph(false, VERTEXES, EDGES, 1000, 1);
+        graph.freeze();
+        Benchmark.measure("Dijkstra", new Benchmark.Task() {
+            @Override
+            public long run() {
+                return Algorithms.shortestPathTree(graph, 0).distanceTo(VERTEXES - 1);
+            }
+        });
+        for (final int threads : Benchmark.threadCounts()) {
+            final ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                Benchmark.measure("delta-stepping, " + threads + " threads", new Benchmark.Task() {
+                    @Override
+                    public long run() {
+                        return Algorithms.shortestPathTreeParallel(graph, 0, executor, threads)
+                                .distanceTo(VERTEXES - 1);
+                    }
+                });
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+}
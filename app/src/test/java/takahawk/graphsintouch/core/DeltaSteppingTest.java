@@ -0,0 +1,52 @@
+package takahawk.graphsintouch.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of {@link DeltaStepping}: distances must be equal to the ones of Dijkstra's algorithm for any delta
+ */
+public class DeltaSteppingTest {
+
+    private static void assertDistances(Graph graph, int source, long delta) {
+        FrozenGraph frozen = graph.freeze();
+        int from = frozen.indexOf(source);
+        int n = frozen.vertexCount();
+        long[] expected = new long[n];
+        Algorithms.dijkstra(frozen, from, -1, expected, new int[n]);
+        int[] prev = new int[n];
+        long[] dist = new DeltaStepping(frozen, null, 1, delta).run(from, prev);
+        assertArrayEquals(expected, dist);
+        for (int v = 0; v < n; v++)
+            assertEquals(v == from || dist[v] == Long.MAX_VALUE, prev[v] == -1);
+    }
+
+    @Test
+    public void smallDeltaWithLargeWeight() {
+        // bucket count is bounded by clamped delta, with delta 1 there would be a billion of buckets
+        Graph graph = new Graph(true);
+        for (int v = 0; v < 4; v++)
+            graph.addVertex(v);
+        graph.addEdge(0, 1, 1000000000);
+        graph.addEdge(1, 2, 1);
+        graph.addEdge(0, 2, 1000000005);
+        graph.addEdge(2, 3, 7);
+        assertDistances(graph, 0, 1);
+    }
+
+    @Test
+    public void randomGraphs() {
+        Random random = new Random(3);
+        for (int test = 0; test < 50; test++) {
+            boolean directed = random.nextBoolean();
+            int maxWeight = random.nextBoolean() ? 10 : Integer.MAX_VALUE / 4;
+            Graph graph = Benchmark.randomGraph(directed, 1 + random.nextInt(300), random.nextInt(1200),
+                    maxWeight, test);
+            long delta = 1 + random.nextInt(random.nextBoolean() ? 4 : 1000000);
+            assertDistances(graph, 0, delta);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package takahawk.graphsintouch.core;
+
+import java.util.List;
+
+/**
+ * Benchmark of heap-based Dijkstra's algorithm on growing graphs up to 1M edges. Time of full search
+ * divided by (V + E) log V should stay about the same. Query with early exit is measured too:
+ * destination is usually settled long before the whole graph
+ */
+public class DijkstraBenchmark {
+    private static final int AVERAGE_DEGREE = 10;
+
+    public static void main(String[] args) throws Exception {
+        for (int edges = 125000; edges <= 1000000; edges *= 2) {
+            final int vertexes = 2 * edges / AVERAGE_DEGREE;
+            final Graph graph = Benchmark.randomGraph(false, vertexes, edges, 1000, edges);
+            graph.freeze();
+            double time = Benchmark.measure("tree, " + edges + " edges", new Benchmark.Task() {
+                @Override
+                public long run() {
+                    return Algorithms.shortestPathTree(graph, 0).distanceTo(vertexes - 1);
+                }
+            });
+            double scale = (vertexes + edges) * (Math.log(vertexes) / Math.log(2));
+            System.out.printf("%-48s %10.2f ns%n", "  per (V + E) log V", time * 1e6 / scale);
+            Benchmark.measure("path, " + edges + " edges", new Benchmark.Task() {
+                @Override
+                public long run() {
+                    List<Integer> path = Algorithms.shortestPathDijkstra(graph, 0, 1);
+                    return (path == null) ? 0 : path.size();
+                }
+            });
+        }
+    }
+}
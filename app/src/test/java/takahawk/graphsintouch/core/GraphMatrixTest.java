@@ -0,0 +1,172 @@
+package takahawk.graphsintouch.core;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks switching of small dense graphs between lists and matrix, and adjacency tests of graphs stored in
+ * matrix against a naive model
+ */
+public class GraphMatrixTest {
+    private static final int VERTEXES = 12;
+
+    private static long key(int out, int in) {
+        return (long) out * VERTEXES + in;
+    }
+
+    // naive adjacency: edge in any direction for undirected graph
+    private static boolean adjacent(Set<Long> edges, boolean directed, int out, int in) {
+        return edges.contains(key(out, in)) || (!directed && edges.contains(key(in, out)));
+    }
+
+    private static void assertAdjacency(Graph graph, Set<Long> edges) {
+        boolean directed = graph.isDirected();
+        assertEquals(edges.size(), graph.edgeCount());
+        for (int a = 0; a < VERTEXES; a++) {
+            for (int b = 0; b < VERTEXES; b++) {
+                assertEquals(adjacent(edges, directed, a, b), graph.adjacent(a, b));
+                int common = 0;
+                for (int c = 0; c < VERTEXES; c++)
+                    if (adjacent(edges, directed, a, c) && adjacent(edges, directed, b, c))
+                        common++;
+                assertEquals(common, graph.commonNeighbours(a, b));
+            }
+        }
+    }
+
+    @Test
+    public void storageFollowsDensity() {
+        Graph graph = new Graph(true);
+        for (int v = 0; v < VERTEXES; v++)
+            graph.addVertex(v);
+        assertFalse(graph.storedInMatrix());
+        // matrix is built when edges fill a quarter of it
+        int edges = 0;
+        for (int out = 0; out < VERTEXES; out++) {
+            for (int in = 0; in < VERTEXES; in++) {
+                assertEquals(edges * 4 >= VERTEXES * VERTEXES, graph.storedInMatrix());
+                graph.addEdge(out, in, out * VERTEXES + in);
+                edges++;
+            }
+        }
+        assertTrue(graph.storedInMatrix());
+        // and dropped when they fill less than an eighth
+        for (int out = 0; out < VERTEXES && edges * 16 > VERTEXES * VERTEXES; out++) {
+            for (int in = 0; in < VERTEXES && edges * 16 > VERTEXES * VERTEXES; in++) {
+                graph.removeEdge(out, in);
+                edges--;
+                assertEquals(edges * 8 >= VERTEXES * VERTEXES, graph.storedInMatrix());
+            }
+        }
+        // weights and directions are kept through both switches
+        for (Graph.Edge edge : graph.edges())
+            assertEquals(edge.getOut() * VERTEXES + edge.getIn(), edge.getWeight());
+        assertEquals(edges, graph.edgeCount());
+        for (int v = 0; v < VERTEXES; v++)
+            graph.removeVertex(v);
+        assertFalse(graph.storedInMatrix());
+        assertEquals(0, graph.edgeCount());
+    }
+
+    @Test
+    public void builtDenseGraph() {
+        int[] out = new int[VERTEXES * VERTEXES];
+        int[] in = new int[VERTEXES * VERTEXES];
+        int[] weight = new int[VERTEXES * VERTEXES];
+        for (int e = 0; e < out.length; e++) {
+            out[e] = e / VERTEXES;
+            in[e] = e % VERTEXES;
+            weight[e] = e;
+        }
+        Graph graph = new GraphBuilder(true).addEdges(out, in, weight).build();
+        assertTrue(graph.storedInMatrix());
+        assertEquals(out.length, graph.edgeCount());
+        FrozenGraph frozen = graph.freeze();
+        for (int e = 0; e < frozen.edgeCount(); e++)
+            assertEquals(frozen.number(frozen.edgeOut(e)) * VERTEXES + frozen.number(frozen.edgeIn(e)),
+                    frozen.edgeWeight(e));
+    }
+
+    @Test
+    public void snapshotKeepsMatrix() {
+        Graph graph = new Graph(false);
+        for (int v = 0; v < VERTEXES; v++)
+            graph.addVertex(v);
+        for (int v = 0; v < VERTEXES; v++)
+            for (int u = v; u < VERTEXES; u++)
+                graph.addEdge(v, u, v + u);
+        assertTrue(graph.storedInMatrix());
+        Graph snapshot = graph.snapshot();
+        graph.changeEdgeWeight(2, 1, 100);
+        graph.removeEdge(2, 3);
+        graph.removeVertex(0);
+        assertTrue(snapshot.adjacent(3, 2));
+        assertEquals(VERTEXES * (VERTEXES + 1) / 2, snapshot.edgeCount());
+        for (Graph.Edge edge : snapshot.edges())
+            assertEquals(edge.getOut() + edge.getIn(), edge.getWeight());
+        assertFalse(graph.adjacent(3, 2));
+        int weight = 0;
+        for (Graph.Edge edge : graph.edges())
+            if (edge.getOut() == 1 && edge.getIn() == 2)
+                weight = edge.getWeight();
+        assertEquals(100, weight);
+    }
+
+    @Test
+    public void counterEdgesAfterSwitchToUndirected() {
+        Graph graph = new Graph(true);
+        graph.addVertex(0);
+        graph.addVertex(1);
+        graph.addEdge(0, 1);
+        graph.addEdge(1, 0);
+        assertTrue(graph.storedInMatrix());
+        graph.setDirected(false);
+        graph.removeEdge(0, 1);
+        assertTrue(graph.adjacent(0, 1));
+        assertTrue(graph.adjacent(1, 0));
+        assertEquals(1, graph.edgeCount());
+        graph.removeEdge(0, 1);
+        assertFalse(graph.adjacent(0, 1));
+        assertFalse(graph.adjacent(1, 0));
+        assertEquals(0, graph.edgeCount());
+    }
+
+    @Test
+    public void randomModifications() {
+        Random random = new Random(3);
+        int matrixChecks = 0;
+        for (int round = 0; round < 20; round++) {
+            Graph graph = new Graph(random.nextBoolean());
+            for (int v = 0; v < VERTEXES; v++)
+                graph.addVertex(v);
+            Set<Long> edges = new HashSet<>();
+            for (int step = 0; step < 300; step++) {
+                int out = random.nextInt(VERTEXES);
+                int in = random.nextInt(VERTEXES);
+                if (random.nextInt(50) == 0) {
+                    graph.setDirected(!graph.isDirected());
+                } else if (random.nextInt(3) == 0) {
+                    graph.removeEdge(out, in);
+                    // undirected graph removes edge stored in any direction, the direct one first
+                    if (!edges.remove(key(out, in)) && !graph.isDirected())
+                        edges.remove(key(in, out));
+                } else if (graph.addEdge(out, in, 1)) {
+                    assertFalse(adjacent(edges, graph.isDirected(), out, in));
+                    edges.add(key(out, in));
+                }
+                if (step % 20 == 0) {
+                    assertAdjacency(graph, edges);
+                    if (graph.storedInMatrix())
+                        matrixChecks++;
+                }
+            }
+            assertAdjacency(graph, edges);
+        }
+        assertTrue(matrixChecks > 0);
+    }
+}
@@ -0,0 +1,329 @@
+package takahawk.graphsintouch.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * Random modifications of {@link Graph} checked against a naive model after every step: vertexes, edges,
+ * adjacency, common neighbours, statistics, frozen graph, change feed of listener and snapshots taken on the way,
+ * that must keep the state they were taken in
+ */
+public class GraphModelTest {
+
+    /**
+     * Naive graph: set of vertex numbers and map of edges in direction they were added to their weights
+     */
+    private static class Model {
+        boolean directed;
+        TreeSet<Integer> vertexes = new TreeSet<>();
+        Map<Long, Integer> edges = new HashMap<>();
+
+        Model(boolean directed) {
+            this.directed = directed;
+        }
+
+        Model(Model model) {
+            directed = model.directed;
+            vertexes = new TreeSet<>(model.vertexes);
+            edges = new HashMap<>(model.edges);
+        }
+
+        static long key(int out, int in) {
+            return ((long) out << 32) | (in & 0xFFFFFFFFL);
+        }
+
+        static int out(long key) {
+            return (int) (key >> 32);
+        }
+
+        static int in(long key) {
+            return (int) key;
+        }
+
+        boolean adjacent(int out, int in) {
+            return edges.containsKey(key(out, in)) || (!directed && edges.containsKey(key(in, out)));
+        }
+
+        // key of edge as it is stored, counter one for undirected graph, null if there is no edge
+        Long stored(int out, int in) {
+            if (edges.containsKey(key(out, in)))
+                return key(out, in);
+            if (!directed && edges.containsKey(key(in, out)))
+                return key(in, out);
+            return null;
+        }
+
+        boolean addEdge(int out, int in, int weight) {
+            if (!vertexes.contains(out) || !vertexes.contains(in) || adjacent(out, in))
+                return false;
+            edges.put(key(out, in), weight);
+            return true;
+        }
+
+        void removeEdge(int out, int in) {
+            Long key = stored(out, in);
+            if (key != null)
+                edges.remove(key);
+        }
+
+        void changeEdgeWeight(int out, int in, int weight) {
+            Long key = stored(out, in);
+            if (key != null)
+                edges.put(key, weight);
+        }
+
+        void removeVertex(int number) {
+            if (!vertexes.remove(number))
+                return;
+            for (Long key : new ArrayList<>(edges.keySet()))
+                if (out(key) == number || in(key) == number)
+                    edges.remove(key);
+        }
+
+        void changeVertexNumber(int number, int newNumber) {
+            if (!vertexes.contains(number) || vertexes.contains(newNumber))
+                return;
+            vertexes.remove(number);
+            vertexes.add(newNumber);
+            Map<Long, Integer> renamed = new HashMap<>();
+            for (Map.Entry<Long, Integer> edge : edges.entrySet()) {
+                int out = out(edge.getKey());
+                int in = in(edge.getKey());
+                renamed.put(key(out == number ? newNumber : out, in == number ? newNumber : in), edge.getValue());
+            }
+            edges = renamed;
+        }
+
+        void apply(GraphChanges changes) {
+            for (int i = 0; i < changes.size(); i++) {
+                switch (changes.type(i)) {
+                    case GraphChanges.VERTEX_ADDED:
+                        assertTrue(vertexes.add(changes.vertex(i)));
+                        break;
+                    case GraphChanges.VERTEX_REMOVED:
+                        assertTrue(vertexes.remove(changes.vertex(i)));
+                        break;
+                    case GraphChanges.VERTEX_RENUMBERED:
+                        changeVertexNumber(changes.vertex(i), changes.newNumber(i));
+                        break;
+                    case GraphChanges.EDGE_ADDED:
+                        assertNull(edges.put(key(changes.out(i), changes.in(i)), changes.weight(i)));
+                        break;
+                    case GraphChanges.EDGE_REMOVED:
+                        assertEquals(Integer.valueOf(changes.weight(i)),
+                                edges.remove(key(changes.out(i), changes.in(i))));
+                        break;
+                    case GraphChanges.EDGE_REWEIGHTED:
+                        assertNotNull(edges.put(key(changes.out(i), changes.in(i)), changes.weight(i)));
+                        break;
+                    case GraphChanges.DIRECTION_CHANGED:
+                        directed = changes.directed(i);
+                        break;
+                    default:
+                        fail("unknown change " + changes.type(i));
+                }
+            }
+        }
+    }
+
+    private static void assertGraph(Model model, Graph graph) {
+        assertEquals(model.directed, graph.isDirected());
+        assertEquals(model.vertexes, new TreeSet<>(graph.vertexes()));
+        assertEquals(model.vertexes.size(), graph.vertexCount());
+        assertEquals(model.edges.size(), graph.edgeCount());
+
+        Map<Long, Integer> edges = new HashMap<>();
+        for (Graph.Edge edge : graph.edges())
+            assertNull(edges.put(Model.key(edge.getOut(), edge.getIn()), edge.getWeight()));
+        assertEquals(model.edges, edges);
+        final Map<Long, Integer> visited = new HashMap<>();
+        graph.forEachEdge(new IntEdgeConsumer() {
+            @Override
+            public void accept(int out, int in, int weight) {
+                assertNull(visited.put(Model.key(out, in), weight));
+            }
+        });
+        assertEquals(model.edges, visited);
+
+        FrozenGraph frozen = graph.freeze();
+        assertEquals(model.vertexes.size(), frozen.vertexCount());
+        final Map<Long, Integer> frozenEdges = new HashMap<>();
+        frozen.forEachEdge(new IntEdgeConsumer() {
+            @Override
+            public void accept(int out, int in, int weight) {
+                assertNull(frozenEdges.put(Model.key(out, in), weight));
+            }
+        });
+        assertEquals(model.edges, frozenEdges);
+
+        List<Integer> numbers = new ArrayList<>(model.vertexes);
+        numbers.add(Integer.MIN_VALUE);
+        for (int out : numbers)
+            for (int in : numbers)
+                assertEquals(model.adjacent(out, in), graph.adjacent(out, in));
+        // common neighbours are counted in cube of vertex count, so only the few first vertexes are checked
+        List<Integer> checked = numbers.subList(0, Math.min(numbers.size() - 1, 12));
+        for (int first : checked) {
+            for (int second : checked) {
+                int common = 0;
+                for (int v : model.vertexes)
+                    if (model.adjacent(first, v) && model.adjacent(second, v))
+                        common++;
+                assertEquals(common, graph.commonNeighbours(first, second));
+            }
+        }
+        assertStatistics(model, graph.statistics());
+    }
+
+    private static void assertStatistics(Model model, GraphStatistics statistics) {
+        assertEquals(model.vertexes.size(), statistics.vertexCount());
+        assertEquals(model.edges.size(), statistics.edgeCount());
+        assertEquals(model.vertexes.isEmpty() ? 0 : model.vertexes.first().intValue(), statistics.minNumber());
+        assertEquals(model.vertexes.isEmpty() ? 0 : model.vertexes.last().intValue(), statistics.maxNumber());
+        long total = 0;
+        int min = model.edges.isEmpty() ? 0 : Integer.MAX_VALUE;
+        int max = model.edges.isEmpty() ? 0 : Integer.MIN_VALUE;
+        boolean negative = false;
+        Map<Integer, Integer> degrees = new HashMap<>();
+        for (int v : model.vertexes)
+            degrees.put(v, 0);
+        for (Map.Entry<Long, Integer> edge : model.edges.entrySet()) {
+            int weight = edge.getValue();
+            min = Math.min(min, weight);
+            max = Math.max(max, weight);
+            total += weight;
+            negative |= weight < 0;
+            degrees.put(Model.out(edge.getKey()), degrees.get(Model.out(edge.getKey())) + 1);
+            degrees.put(Model.in(edge.getKey()), degrees.get(Model.in(edge.getKey())) + 1);
+        }
+        assertEquals(total, statistics.totalWeight());
+        assertEquals(min, statistics.minWeight());
+        assertEquals(max, statistics.maxWeight());
+        assertEquals(negative, statistics.hasNegativeWeights());
+        int maxDegree = 0;
+        for (int degree : degrees.values())
+            maxDegree = Math.max(maxDegree, degree);
+        int[] histogram = new int[maxDegree + 1];
+        for (int degree : degrees.values())
+            histogram[degree]++;
+        assertArrayEquals(histogram, statistics.degreeHistogram());
+    }
+
+    private static int randomWeight(Random random) {
+        switch (random.nextInt(6)) {
+            case 0:
+                return -1 - random.nextInt(5);
+            case 1:
+                return random.nextBoolean() ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+            default:
+                return 1 + random.nextInt(3);
+        }
+    }
+
+    private static void modify(Random random, Model model, Graph graph, int numbers) {
+        int a = random.nextInt(numbers) - numbers / 2;
+        int b = random.nextInt(numbers) - numbers / 2;
+        int weight = randomWeight(random);
+        int operation = random.nextInt(100);
+        if (operation < 15) {
+            assertEquals(model.vertexes.add(a), graph.addVertex(a));
+        } else if (operation < 50) {
+            assertEquals(model.addEdge(a, b, weight), graph.addEdge(a, b, weight));
+        } else if (operation < 70) {
+            model.removeEdge(a, b);
+            graph.removeEdge(a, b);
+        } else if (operation < 80) {
+            model.changeEdgeWeight(a, b, weight);
+            graph.changeEdgeWeight(a, b, weight);
+        } else if (operation < 88) {
+            model.removeVertex(a);
+            graph.removeVertex(a);
+        } else if (operation < 97) {
+            model.changeVertexNumber(a, b);
+            graph.changeVertexNumber(a, b);
+        } else {
+            model.directed = !model.directed;
+            graph.setDirected(model.directed);
+        }
+    }
+
+    // returns count of steps after which graph was stored in matrix
+    private static int run(long seed, int numbers, int steps) {
+        Random random = new Random(seed);
+        Model model = new Model(random.nextBoolean());
+        Graph graph = new Graph(model.directed);
+        final Model replayed = new Model(model.directed);
+        graph.addListener(new GraphListener() {
+            @Override
+            public void graphChanged(GraphChanges changes) {
+                replayed.apply(changes);
+            }
+        });
+        List<Graph> snapshots = new ArrayList<>();
+        List<Model> snapshotModels = new ArrayList<>();
+        List<Long> snapshotVersions = new ArrayList<>();
+        int matrixSteps = 0;
+        for (int step = 0; step < steps; step++) {
+            if (random.nextInt(10) == 0) {
+                // batch is published to listener at once
+                graph.beginBatch();
+                int size = 1 + random.nextInt(10);
+                for (int i = 0; i < size; i++)
+                    modify(random, model, graph, numbers);
+                graph.endBatch();
+            } else {
+                modify(random, model, graph, numbers);
+            }
+            if (random.nextInt(20) == 0) {
+                snapshots.add(graph.snapshot());
+                snapshotModels.add(new Model(model));
+                snapshotVersions.add(graph.version());
+            }
+            if (random.nextInt(5) == 0)
+                graph.freeze();
+            assertGraph(model, graph);
+            assertEquals(model.directed, replayed.directed);
+            assertEquals(model.vertexes, replayed.vertexes);
+            assertEquals(model.edges, replayed.edges);
+            if (graph.storedInMatrix())
+                matrixSteps++;
+        }
+        for (int i = 0; i < snapshots.size(); i++) {
+            Graph snapshot = snapshots.get(i);
+            assertTrue(snapshot.isReadOnly());
+            assertEquals(snapshotVersions.get(i).longValue(), snapshot.version());
+            assertGraph(snapshotModels.get(i), snapshot);
+        }
+        return matrixSteps;
+    }
+
+    @Test
+    public void smallDenseGraphs() {
+        // few vertex numbers, so graph is dense and stored in matrix for a part of steps
+        int matrixSteps = 0;
+        for (long seed = 0; seed < 20; seed++)
+            matrixSteps += run(seed, 10, 400);
+        assertTrue(matrixSteps > 0);
+    }
+
+    @Test
+    public void sparseGraphs() {
+        for (long seed = 100; seed < 105; seed++)
+            run(seed, 80, 1500);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void snapshotIsReadOnly() {
+        Graph graph = new Graph(false);
+        graph.addVertex(0);
+        graph.snapshot().addVertex(1);
+    }
+}
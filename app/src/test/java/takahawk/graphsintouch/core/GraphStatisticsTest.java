@@ -0,0 +1,130 @@
+package takahawk.graphsintouch.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks statistics maintained by {@link Graph} on random modifications against values counted from scratch
+ */
+public class GraphStatisticsTest {
+
+    private static void assertStatistics(Graph graph) {
+        // every edge is visited once, also in undirected graph
+        final long[] weights = new long[graph.edgeCount()];
+        final int[] edges = new int[1];
+        graph.forEachEdge(new IntEdgeConsumer() {
+            @Override
+            public void accept(int out, int in, int weight) {
+                weights[edges[0]++] = weight;
+            }
+        });
+        assertEquals(weights.length, edges[0]);
+        long total = 0;
+        long minWeight = 0;
+        long maxWeight = 0;
+        boolean negative = false;
+        for (int i = 0; i < weights.length; i++) {
+            if (i == 0 || weights[i] < minWeight)
+                minWeight = weights[i];
+            if (i == 0 || weights[i] > maxWeight)
+                maxWeight = weights[i];
+            negative |= weights[i] < 0;
+            total += weights[i];
+        }
+        int minNumber = 0;
+        int maxNumber = 0;
+        int vertexes = 0;
+        for (int number : graph.vertexes()) {
+            if (vertexes == 0 || number < minNumber)
+                minNumber = number;
+            if (vertexes == 0 || number > maxNumber)
+                maxNumber = number;
+            vertexes++;
+        }
+        GraphStatistics statistics = graph.statistics();
+        assertEquals(vertexes, statistics.vertexCount());
+        assertEquals(weights.length, statistics.edgeCount());
+        assertEquals(total, statistics.totalWeight());
+        assertEquals(minWeight, statistics.minWeight());
+        assertEquals(maxWeight, statistics.maxWeight());
+        assertEquals(negative, statistics.hasNegativeWeights());
+        assertEquals(minNumber, statistics.minNumber());
+        assertEquals(maxNumber, statistics.maxNumber());
+    }
+
+    private static void randomModifications(boolean directed, long seed) {
+        Random random = new Random(seed);
+        Graph graph = new Graph(directed);
+        List<Graph> snapshots = new ArrayList<>();
+        for (int step = 0; step < 3000; step++) {
+            int a = random.nextInt(30);
+            int b = random.nextInt(30);
+            // few distinct weights, so extremes are often shared by several edges
+            int weight = random.nextInt(7) - 2;
+            switch (random.nextInt(6)) {
+                case 0:
+                    graph.addVertex(a);
+                    break;
+                case 1:
+                    graph.removeVertex(a);
+                    break;
+                case 2:
+                    graph.changeVertexNumber(a, b + 30);
+                    break;
+                case 3:
+                    graph.removeEdge(a, b);
+                    break;
+                case 4:
+                    graph.changeEdgeWeight(a, b, weight);
+                    break;
+                default:
+                    graph.addVertex(a);
+                    graph.addVertex(b);
+                    graph.addEdge(a, b, weight);
+            }
+            if (step % 10 == 0)
+                assertStatistics(graph);
+            if (step % 100 == 0)
+                snapshots.add(graph.snapshot());
+        }
+        assertStatistics(graph);
+        for (Graph snapshot : snapshots)
+            assertStatistics(snapshot);
+    }
+
+    @Test
+    public void directedGraph() {
+        for (long seed = 0; seed < 10; seed++)
+            randomModifications(true, seed);
+    }
+
+    @Test
+    public void undirectedGraph() {
+        for (long seed = 0; seed < 10; seed++)
+            randomModifications(false, seed);
+    }
+
+    @Test
+    public void removalOfSharedExtremeWeight() {
+        Graph graph = new Graph(false);
+        for (int v = 0; v < 4; v++)
+            graph.addVertex(v);
+        graph.addEdge(0, 1, 1);
+        graph.addEdge(1, 2, 1);
+        graph.addEdge(2, 3, 5);
+        graph.removeEdge(0, 1);
+        assertEquals(1, graph.statistics().minWeight());
+        graph.removeEdge(1, 2);
+        assertEquals(5, graph.statistics().minWeight());
+        graph.changeEdgeWeight(2, 3, 7);
+        assertEquals(7, graph.statistics().maxWeight());
+        graph.removeEdge(2, 3);
+        assertEquals(0, graph.statistics().minWeight());
+        assertEquals(0, graph.statistics().maxWeight());
+    }
+}
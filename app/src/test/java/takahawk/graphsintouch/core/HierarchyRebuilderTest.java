@@ -0,0 +1,98 @@
+package takahawk.graphsintouch.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of background rebuild of contraction hierarchy
+ */
+public class HierarchyRebuilderTest {
+    private static final long TIMEOUT = 10000;
+
+    private static ContractionHierarchy awaitVersion(HierarchyRebuilder rebuilder, long version)
+            throws InterruptedException {
+        long end = System.currentTimeMillis() + TIMEOUT;
+        while (System.currentTimeMillis() < end) {
+            ContractionHierarchy hierarchy = rebuilder.current();
+            if (hierarchy != null && hierarchy.version() == version)
+                return hierarchy;
+            Thread.sleep(5);
+        }
+        fail("hierarchy of version " + version + " is not built");
+        return null;
+    }
+
+    @Test
+    public void attachedGraphIsRebuiltOnEdit() throws InterruptedException {
+        Random random = new Random(5);
+        Graph graph = new Graph(false);
+        for (int v = 0; v < 300; v++)
+            graph.addVertex(v);
+        for (int e = 0; e < 1200; e++)
+            graph.addEdge(random.nextInt(300), random.nextInt(300), 1 + random.nextInt(20));
+        HierarchyRebuilder rebuilder = new HierarchyRebuilder();
+        try {
+            rebuilder.attach(graph);
+            awaitVersion(rebuilder, graph.version());
+            // a query snapshot taken before edits must not replace rebuild of the newer version
+            Graph old = graph.snapshot();
+            graph.beginBatch();
+            for (int e = 0; e < 20; e++)
+                graph.addEdge(random.nextInt(300), random.nextInt(300), 1 + random.nextInt(20));
+            graph.endBatch();
+            rebuilder.update(old);
+            ContractionHierarchy hierarchy = awaitVersion(rebuilder, graph.version());
+            for (int query = 0; query < 100; query++) {
+                int source = random.nextInt(300);
+                int destination = random.nextInt(300);
+                assertEquals(ShortestPathTest.length(graph, Algorithms.shortestPathDijkstra(graph, source, destination)),
+                        ShortestPathTest.length(graph, hierarchy.shortestPath(source, destination)));
+            }
+
+            rebuilder.detach();
+            graph.addEdge(0, 1, 1);
+            graph.removeEdge(0, 1);
+            Thread.sleep(100);
+            assertSame(hierarchy, rebuilder.current());
+        } finally {
+            rebuilder.shutdown();
+        }
+    }
+
+    @Test
+    public void negativeWeightKeepsOldHierarchy() throws InterruptedException {
+        Graph graph = new Graph(true);
+        for (int v = 0; v < 3; v++)
+            graph.addVertex(v);
+        graph.addEdge(0, 1, 1);
+        HierarchyRebuilder rebuilder = new HierarchyRebuilder();
+        try {
+            rebuilder.attach(graph);
+            ContractionHierarchy hierarchy = awaitVersion(rebuilder, graph.version());
+            graph.addEdge(1, 2, -1);
+            Thread.sleep(100);
+            assertSame(hierarchy, rebuilder.current());
+        } finally {
+            rebuilder.shutdown();
+        }
+    }
+
+    @Test
+    public void shutdownStopsRebuilds() throws InterruptedException {
+        Graph graph = new Graph(true);
+        for (int v = 0; v < 3; v++)
+            graph.addVertex(v);
+        graph.addEdge(0, 1, 1);
+        HierarchyRebuilder rebuilder = new HierarchyRebuilder();
+        rebuilder.attach(graph);
+        ContractionHierarchy hierarchy = awaitVersion(rebuilder, graph.version());
+        rebuilder.shutdown();
+        graph.addEdge(1, 2, 1);
+        assertSame(hierarchy, rebuilder.update(graph));
+        Thread.sleep(100);
+        assertSame(hierarchy, rebuilder.current());
+    }
+}
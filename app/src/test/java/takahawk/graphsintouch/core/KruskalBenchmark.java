@@ -0,0 +1,64 @@
+package takahawk.graphsintouch.core;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import takahawk.takalibrary.UnionFind;
+
+/**
+ * Benchmark of Kruskal's algorithm with radix sort of edges (sequential and parallel) against the same
+ * algorithm with comparison sort and against Filter-Kruskal
+ */
+public class KruskalBenchmark {
+    private static final int VERTEXES = 200000;
+    private static final int EDGES = 2000000;
+
+    public static void main(String[] args) throws Exception {
+        final FrozenGraph graph = Benchmark.randomGraph(false, VERTEXES, EDGES, Integer.MAX_VALUE, 1).freeze();
+        Benchmark.measure("Kruskal, comparison sort", new Benchmark.Task() {
+            @Override
+            public long run() {
+                int m = graph.edgeWeight.length;
+                // weight in high bits, index in low ones, so sort is stable as radix sort is
+                long[] keys = new long[m];
+                for (int e = 0; e < m; e++)
+                    keys[e] = ((long) graph.edgeWeight[e] << 32) | e;
+                Arrays.sort(keys);
+                UnionFind sets = new UnionFind(graph.vertexCount());
+                long weight = 0;
+                for (int i = 0; i < m && sets.count() > 1; i++) {
+                    int e = (int) keys[i];
+                    if (sets.union(graph.edgeOut[e], graph.edgeIn[e]))
+                        weight += graph.edgeWeight[e];
+                }
+                return weight;
+            }
+        });
+        Benchmark.measure("Kruskal, radix sort", new Benchmark.Task() {
+            @Override
+            public long run() {
+                return Algorithms.minForestKruskal(graph, null, 1).length;
+            }
+        });
+        for (final int threads : Benchmark.threadCounts()) {
+            final ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                Benchmark.measure("Kruskal, parallel radix sort, " + threads + " threads", new Benchmark.Task() {
+                    @Override
+                    public long run() {
+                        return Algorithms.minForestKruskal(graph, executor, threads).length;
+                    }
+                });
+            } finally {
+                executor.shutdown();
+            }
+        }
+        Benchmark.measure("Filter-Kruskal", new Benchmark.Task() {
+            @Override
+            public long run() {
+                return Algorithms.minForestFilterKruskal(graph).length;
+            }
+        });
+    }
+}
@@ -0,0 +1,169 @@
+package takahawk.graphsintouch.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Every shortest path search checked against Bellman-Ford algorithm on random graphs with non-negative weights:
+ * Dijkstra, shortest path tree and its cache, bidirectional search, A* with Euclidean and landmark heuristics,
+ * contraction hierarchy, delta-stepping and breadth-first tree of graphs with equal weights
+ */
+public class ShortestPathModelTest {
+    private static final int GRAPHS = 30;
+    private static final int QUERIES = 30;
+
+    /**
+     * Naive Bellman-Ford: all edges are relaxed while any distance decreases
+     * @return distances by dense index of graph.freeze() (Long.MAX_VALUE - vertex is not reached)
+     */
+    private static long[] bellmanFord(FrozenGraph graph, int from) {
+        long[] dist = new long[graph.vertexCount()];
+        Arrays.fill(dist, Long.MAX_VALUE);
+        dist[from] = 0;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int e = 0; e < graph.edgeCount(); e++) {
+                int out = graph.edgeOut(e);
+                int in = graph.edgeIn(e);
+                int weight = graph.edgeWeight(e);
+                if (dist[out] != Long.MAX_VALUE && dist[out] + weight < dist[in]) {
+                    dist[in] = dist[out] + weight;
+                    changed = true;
+                }
+                if (!graph.isDirected() && dist[in] != Long.MAX_VALUE && dist[in] + weight < dist[out]) {
+                    dist[out] = dist[in] + weight;
+                    changed = true;
+                }
+            }
+        }
+        return dist;
+    }
+
+    // vertex numbers are not dense indexes, so mapping between them is checked too
+    private static Graph randomGraph(Random random, int maxWeight) {
+        Graph graph = new Graph(random.nextBoolean());
+        int vertexes = 1 + random.nextInt(120);
+        for (int v = 0; v < vertexes; v++)
+            graph.addVertex(v * 3 - 50);
+        int edges = random.nextInt(vertexes * 4);
+        for (int e = 0; e < edges; e++)
+            graph.addEdge(random.nextInt(vertexes) * 3 - 50, random.nextInt(vertexes) * 3 - 50,
+                    random.nextInt(maxWeight + 1));
+        // unreachable part
+        if (random.nextBoolean())
+            graph.addVertex(1000);
+        return graph;
+    }
+
+    private static EuclideanHeuristic euclidean(Random random, Graph graph) {
+        int[] numbers = new int[graph.vertexCount()];
+        float[] x = new float[numbers.length];
+        float[] y = new float[numbers.length];
+        int i = 0;
+        for (int number : graph.vertexes()) {
+            numbers[i] = number;
+            x[i] = random.nextFloat() * 100;
+            y[i] = random.nextFloat() * 100;
+            i++;
+        }
+        return new EuclideanHeuristic(graph, numbers, x, y);
+    }
+
+    private static void assertLength(Graph graph, long expected, List<Integer> path, int source, int destination) {
+        // searches give no path from vertex to itself, callers handle it before search
+        if (source == destination)
+            return;
+        if (expected == Long.MAX_VALUE) {
+            assertNull(path);
+            return;
+        }
+        assertNotNull(path);
+        assertEquals(source, path.get(0).intValue());
+        assertEquals(destination, path.get(path.size() - 1).intValue());
+        assertEquals(expected, ShortestPathTest.length(graph, path));
+    }
+
+    @Test
+    public void weightedSearches() {
+        Random random = new Random(11);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for (int test = 0; test < GRAPHS; test++) {
+                Graph graph = randomGraph(random, random.nextBoolean() ? 3 : 1000);
+                FrozenGraph frozen = graph.freeze();
+                int n = frozen.vertexCount();
+                ShortestPathCache cache = new ShortestPathCache(1 << 20);
+                EuclideanHeuristic euclidean = euclidean(random, graph);
+                LandmarkIndex landmarks = new LandmarkIndex(graph, 1 + random.nextInt(4), executor);
+                ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+                for (int query = 0; query < QUERIES; query++) {
+                    int from = random.nextInt(n);
+                    int to = random.nextInt(n);
+                    int source = frozen.number(from);
+                    int destination = frozen.number(to);
+                    long[] dist = bellmanFord(frozen, from);
+                    long expected = dist[to];
+
+                    assertLength(graph, expected, Algorithms.shortestPathDijkstra(graph, source, destination),
+                            source, destination);
+                    ShortestPathTree tree = cache.tree(graph, source);
+                    assertSame(tree, cache.tree(graph, source));
+                    assertEquals(expected == Long.MAX_VALUE ? -1 : expected, tree.distanceTo(destination));
+                    assertLength(graph, expected, tree.pathTo(destination), source, destination);
+                    assertLength(graph, expected,
+                            Algorithms.shortestPathBidirectional(graph, source, destination), source, destination);
+                    assertLength(graph, expected,
+                            Algorithms.shortestPathAStar(graph, source, destination, euclidean), source, destination);
+                    assertLength(graph, expected, landmarks.shortestPath(source, destination), source, destination);
+                    assertLength(graph, expected, hierarchy.shortestPath(source, destination), source, destination);
+
+                    ShortestPathTree parallel = Algorithms.shortestPathTreeParallel(graph, source, executor, 3);
+                    for (int v = 0; v < n; v++)
+                        assertEquals(dist[v] == Long.MAX_VALUE ? -1 : dist[v], parallel.distanceTo(frozen.number(v)));
+                    assertLength(graph, expected, parallel.pathTo(destination), source, destination);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void breadthFirstTree() {
+        Random random = new Random(12);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for (int test = 0; test < GRAPHS; test++) {
+                Graph graph = randomGraph(random, 0);
+                // all weights are equal, so the least count of edges gives the shortest path
+                for (Graph.Edge edge : graph.getAllEdges())
+                    graph.changeEdgeWeight(edge.getOut(), edge.getIn(), 1);
+                FrozenGraph frozen = graph.freeze();
+                for (int query = 0; query < QUERIES; query++) {
+                    int from = random.nextInt(frozen.vertexCount());
+                    int source = frozen.number(from);
+                    long[] dist = bellmanFord(frozen, from);
+                    BreadthFirstTree sequential = Algorithms.breadthFirstTree(graph, source);
+                    BreadthFirstTree parallel = Algorithms.breadthFirstTree(graph, source, executor, 3);
+                    for (int v = 0; v < frozen.vertexCount(); v++) {
+                        int destination = frozen.number(v);
+                        long hops = (dist[v] == Long.MAX_VALUE) ? -1 : dist[v];
+                        assertEquals(hops, sequential.hopsTo(destination));
+                        assertEquals(hops, parallel.hopsTo(destination));
+                        assertLength(graph, dist[v], parallel.pathTo(destination), source, destination);
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package takahawk.graphsintouch.core;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of shortest path searches in {@link Algorithms}
+ */
+public class ShortestPathTest {
+    private static final Heuristic ZERO = new Heuristic() {
+        @Override
+        public long estimate(int vertex, int destination) {
+            return 0;
+        }
+    };
+
+    /**
+     * Returns length of path, the least weight is taken for every step, -1 if there is no path
+     */
+    static long length(Graph graph, List<Integer> path) {
+        if (path == null)
+            return -1;
+        long length = 0;
+        for (int i = 0; i + 1 < path.size(); i++) {
+            long best = Long.MAX_VALUE;
+            for (Graph.Edge edge : graph.getAdjacentEdges(path.get(i))) {
+                int other = (edge.getOut() == path.get(i)) ? edge.getIn() : edge.getOut();
+                if (edge.getOut() == path.get(i) && edge.getIn() == path.get(i + 1)
+                        || !graph.isDirected() && other == path.get(i + 1))
+                    best = Math.min(best, edge.getWeight());
+            }
+            assertTrue("no edge " + path.get(i) + " - " + path.get(i + 1), best != Long.MAX_VALUE);
+            length += best;
+        }
+        return length;
+    }
+
+    // path must go over existing edges from source to destination
+    private static void assertPath(Graph graph, List<Integer> path, int source, int destination) {
+        assertNotNull(path);
+        assertEquals(source, (int) path.get(0));
+        assertEquals(destination, (int) path.get(path.size() - 1));
+        for (int i = 0; i + 1 < path.size(); i++)
+            assertTrue(graph.adjacent(path.get(i), path.get(i + 1)));
+    }
+
+    private static void assertSearchesStop(Graph graph, int source, int destination) {
+        assertPath(graph, Algorithms.shortestPathDijkstra(graph, source, destination), source, destination);
+        assertPath(graph, Algorithms.shortestPathAStar(graph, source, destination, ZERO), source, destination);
+        assertPath(graph, Algorithms.shortestPathTree(graph, source).pathTo(destination), source, destination);
+        assertPath(graph, Algorithms.shortestPathBidirectional(graph, source, destination), source, destination);
+    }
+
+    @Test(timeout = 10000)
+    public void negativeUndirectedEdgeDoesNotLoop() {
+        Graph graph = new Graph(false);
+        for (int v = 0; v < 4; v++)
+            graph.addVertex(v);
+        graph.addEdge(0, 1, 2);
+        graph.addEdge(1, 2, -3);
+        graph.addEdge(2, 3, 1);
+        assertSearchesStop(graph, 0, 3);
+    }
+
+    @Test(timeout = 10000)
+    public void negativeDirectedCycleDoesNotLoop() {
+        Graph graph = new Graph(true);
+        for (int v = 0; v < 4; v++)
+            graph.addVertex(v);
+        graph.addEdge(0, 1, 1);
+        graph.addEdge(1, 2, -5);
+        graph.addEdge(2, 1, 1);
+        graph.addEdge(2, 3, 1);
+        assertSearchesStop(graph, 0, 3);
+    }
+}
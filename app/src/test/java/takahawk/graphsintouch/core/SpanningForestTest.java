@@ -0,0 +1,135 @@
+package takahawk.graphsintouch.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import takahawk.takalibrary.UnionFind;
+
+import static org.junit.Assert.*;
+
+/**
+ * Minimum spanning forests of Kruskal's (sequential and with parallel sort), Filter-Kruskal and Borůvka's
+ * (sequential and parallel) algorithms checked against each other and against Prim's algorithm and naive
+ * Kruskal's algorithm with comparison sort. Ties are broken by order of edges, so forests of the first ones
+ * must be the same, forest of Prim's algorithm must have the same weight
+ */
+public class SpanningForestTest {
+
+    private static long pair(int a, int b) {
+        return ((long) Math.min(a, b) << 32) | Math.max(a, b);
+    }
+
+    // weight of forest given by parents, every vertex must reach a root and forest must span all components
+    private static long weight(FrozenGraph graph, int[] parents) {
+        int n = graph.vertexCount();
+        assertEquals(n, parents.length);
+        Map<Long, Integer> weights = new HashMap<>();
+        UnionFind components = new UnionFind(Math.max(n, 1));
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            weights.put(pair(graph.edgeOut(e), graph.edgeIn(e)), graph.edgeWeight(e));
+            components.union(graph.edgeOut(e), graph.edgeIn(e));
+        }
+        UnionFind trees = new UnionFind(Math.max(n, 1));
+        long weight = 0;
+        int edges = 0;
+        for (int v = 0; v < n; v++) {
+            if (parents[v] == -1)
+                continue;
+            Integer edge = weights.get(pair(v, parents[v]));
+            assertNotNull("no edge " + v + " - " + parents[v], edge);
+            assertTrue("cycle through " + v, trees.union(v, parents[v]));
+            weight += edge;
+            edges++;
+        }
+        // spanning forest has a tree per component
+        if (n > 0)
+            assertEquals(n - components.count(), edges);
+        return weight;
+    }
+
+    // naive Kruskal's algorithm: edges sorted by weight and index, so it breaks ties the same way
+    private static long naiveWeight(FrozenGraph graph) {
+        int m = graph.edgeCount();
+        long[] keys = new long[m];
+        for (int e = 0; e < m; e++)
+            keys[e] = ((long) graph.edgeWeight(e) << 32) | e;
+        Arrays.sort(keys);
+        UnionFind sets = new UnionFind(Math.max(graph.vertexCount(), 1));
+        long weight = 0;
+        for (long key : keys) {
+            int e = (int) key;
+            if (sets.union(graph.edgeOut(e), graph.edgeIn(e)))
+                weight += graph.edgeWeight(e);
+        }
+        return weight;
+    }
+
+    private static int randomWeight(Random random, int kind) {
+        switch (kind) {
+            case 0:
+                // many equal weights, ties decide the forest
+                return random.nextInt(3);
+            case 1:
+                return random.nextInt(11) - 5;
+            default:
+                int weight = random.nextInt();
+                return random.nextInt(10) == 0 ? (weight < 0 ? Integer.MIN_VALUE : Integer.MAX_VALUE) : weight;
+        }
+    }
+
+    private static FrozenGraph randomGraph(Random random, int vertexes, int edges) {
+        int kind = random.nextInt(3);
+        Graph graph = new Graph(false);
+        for (int v = 0; v < vertexes; v++)
+            graph.addVertex(v * 7 - 100);
+        for (int e = 0; e < edges && vertexes > 0; e++)
+            graph.addEdge(random.nextInt(vertexes) * 7 - 100, random.nextInt(vertexes) * 7 - 100,
+                    randomWeight(random, kind));
+        return graph.freeze();
+    }
+
+    private static void assertForests(FrozenGraph graph, ExecutorService executor, int parallelism) {
+        int[] kruskal = Algorithms.minForestKruskal(graph, null, 1);
+        long weight = weight(graph, kruskal);
+        assertEquals(naiveWeight(graph), weight);
+        assertArrayEquals(kruskal, Algorithms.minForestKruskal(graph, executor, parallelism));
+        assertArrayEquals(kruskal, Algorithms.minForestFilterKruskal(graph));
+        assertArrayEquals(kruskal, Algorithms.minForestBoruvka(graph, null, 1));
+        assertArrayEquals(kruskal, Algorithms.minForestBoruvka(graph, executor, parallelism));
+        assertEquals(weight, weight(graph, Algorithms.spanningForestPrim(graph, false)));
+    }
+
+    @Test
+    public void smallGraphs() {
+        Random random = new Random(21);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for (int test = 0; test < 200; test++) {
+                int vertexes = random.nextInt(60);
+                assertForests(randomGraph(random, vertexes, random.nextInt(vertexes * vertexes / 2 + 1)),
+                        executor, 1 + random.nextInt(4));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void largeGraphs() {
+        // big enough for parallel sort, parallel Borůvka steps and partitioning of Filter-Kruskal
+        Random random = new Random(22);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int test = 0; test < 6; test++)
+                assertForests(randomGraph(random, 20000, 100000), executor, 4);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package takahawk.takalibrary;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of {@link RadixSort}: order must be the one of stable comparison sort, sequential and parallel
+ */
+public class RadixSortTest {
+
+    private static void assertOrder(int[] keys, int[] order) {
+        long[] expected = new long[keys.length];
+        for (int i = 0; i < keys.length; i++)
+            expected[i] = ((long) keys[i] << 32) | i;
+        Arrays.sort(expected);
+        for (int i = 0; i < keys.length; i++)
+            assertEquals((int) expected[i], order[i]);
+    }
+
+    private static int[] keys(Random random, int n) {
+        int[] keys = new int[n];
+        for (int i = 0; i < n; i++) {
+            switch (random.nextInt(3)) {
+                case 0:
+                    keys[i] = random.nextInt();
+                    break;
+                case 1:
+                    keys[i] = random.nextInt(10) - 5;
+                    break;
+                default:
+                    keys[i] = random.nextBoolean() ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+            }
+        }
+        return keys;
+    }
+
+    @Test
+    public void sequential() {
+        Random random = new Random(1);
+        for (int n : new int[] {0, 1, 2, 100, 5000}) {
+            int[] keys = keys(random, n);
+            assertOrder(keys, RadixSort.order(keys));
+        }
+        // all keys are equal, every pass is skipped
+        assertOrder(new int[1000], RadixSort.order(new int[1000]));
+    }
+
+    @Test
+    public void parallel() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            int[] keys = keys(new Random(2), 300000);
+            for (int parallelism : new int[] {1, 2, 3, 7})
+                assertOrder(keys, RadixSort.order(keys, executor, parallelism));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}